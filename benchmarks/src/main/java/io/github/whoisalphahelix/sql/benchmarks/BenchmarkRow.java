@@ -0,0 +1,39 @@
+package io.github.whoisalphahelix.sql.benchmarks;
+
+import io.github.whoisalphahelix.sql.annotations.Column;
+import io.github.whoisalphahelix.sql.annotations.Table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+@Table("benchmark_rows")
+public class BenchmarkRow {
+
+    @Column(additionals = "PRIMARY KEY")
+    private long id;
+    @Column
+    private UUID owner;
+    @Column
+    private String name;
+    @Column
+    private int score;
+    @Column
+    private List<String> tags;
+
+    public BenchmarkRow() {
+    }
+
+    public BenchmarkRow(long id) {
+        this.id = id;
+        this.owner = new UUID(id, ~id);
+        this.name = "row-" + id;
+        this.score = (int) (id % 1000);
+        this.tags = new ArrayList<>(Arrays.asList("tag-" + (id % 7), "tag-" + (id % 13)));
+    }
+
+    public long getId() {
+        return id;
+    }
+}
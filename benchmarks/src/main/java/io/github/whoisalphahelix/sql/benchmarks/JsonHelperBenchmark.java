@@ -0,0 +1,50 @@
+package io.github.whoisalphahelix.sql.benchmarks;
+
+import io.github.whoisalphahelix.sql.JsonHelper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonHelperBenchmark {
+
+    private final JsonHelper helper = new JsonHelper();
+
+    private BenchmarkRow object;
+    private Integer number;
+    private String encodedObject;
+    private String encodedNumber;
+
+    @Setup
+    public void setup() {
+        object = new BenchmarkRow(42);
+        number = 123456;
+        encodedObject = helper.toEscapedString(JsonHelper.gson(), object);
+        encodedNumber = helper.toEscapedString(JsonHelper.gson(), number);
+    }
+
+    @Benchmark
+    public String encodeObject() {
+        return helper.toEscapedString(JsonHelper.gson(), object);
+    }
+
+    @Benchmark
+    public Object decodeObject() {
+        return helper.fromJsonTree(JsonHelper.gson(), encodedObject);
+    }
+
+    @Benchmark
+    public String encodePrimitive() {
+        return helper.toEscapedString(JsonHelper.gson(), number);
+    }
+
+    @Benchmark
+    public Object decodePrimitive() {
+        return helper.fromJsonTree(JsonHelper.gson(), encodedNumber);
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.whoisalphahelix.sql.benchmarks;
+
+import io.github.whoisalphahelix.sql.SQL;
+import io.github.whoisalphahelix.sql.SQLTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SQLTableBenchmark {
+
+    @Param({"memory", "file"})
+    private String storage;
+    @Param({"1000", "100000"})
+    private int rows;
+
+    private SQL sql;
+    private SQLTable<BenchmarkRow> table;
+    private File file;
+    private AtomicLong nextId;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        SQL.SQLBuilder builder = SQL.builder().driver("org.sqlite.JDBC")
+                .dataSourceProperty("busy_timeout", "30000");
+
+        if (storage.equals("file")) {
+            file = File.createTempFile("sql-api-benchmark", ".db");
+            builder.jdbcUrl("jdbc:sqlite:" + file.getAbsolutePath())
+                    .dataSourceProperty("journal_mode", "WAL");
+        } else {
+            builder.jdbcUrl("jdbc:sqlite:file:sql-api-benchmark?mode=memory&cache=shared")
+                    .maximumPoolSize(1);
+        }
+
+        sql = builder.build();
+        table = sql.createTable(BenchmarkRow.class);
+
+        List<BenchmarkRow> data = new ArrayList<>(rows);
+
+        for (long id = 0; id < rows; id++)
+            data.add(new BenchmarkRow(id));
+
+        table.insertAll(data);
+        nextId = new AtomicLong(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sql.close();
+
+        if (file != null && !file.delete())
+            file.deleteOnExit();
+    }
+
+    @Benchmark
+    public SQLTable<BenchmarkRow> insert() {
+        return table.insert(new BenchmarkRow(nextId.getAndIncrement()));
+    }
+
+    @Benchmark
+    public BenchmarkRow getRow() {
+        return table.getRow("id", randomId());
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return table.contains("id", randomId());
+    }
+
+    @Benchmark
+    public SQLTable<BenchmarkRow> update() {
+        return table.update("id", randomId(), "score", ThreadLocalRandom.current().nextInt(1000));
+    }
+
+    @Benchmark
+    public List<BenchmarkRow> getAll() {
+        return table.getAll();
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(rows);
+    }
+}
@@ -0,0 +1,121 @@
+package io.github.whoisalphahelix.sql;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+@Getter
+public class AsyncSQLTable<T> {
+
+    private final SQLTable<T> table;
+
+    AsyncSQLTable(SQLTable<T> table) {
+        this.table = table;
+    }
+
+    public <R> CompletableFuture<R> supply(Function<SQLTable<T>, R> operation) {
+        return CompletableFuture.supplyAsync(() -> operation.apply(table), table.getSql().getAsyncExecutor());
+    }
+
+    public CompletableFuture<Void> run(Consumer<SQLTable<T>> operation) {
+        return CompletableFuture.runAsync(() -> operation.accept(table), table.getSql().getAsyncExecutor());
+    }
+
+    public <R> CompletableFuture<Void> callback(CompletableFuture<R> future, Consumer<R> callback) {
+        return callback(future, table.getSql().getCallbackExecutor(), callback);
+    }
+
+    public <R> CompletableFuture<Void> callback(CompletableFuture<R> future, Executor caller, Consumer<R> callback) {
+        return future.thenAcceptAsync(callback, caller);
+    }
+
+    public <R> CompletableFuture<Void> supply(Function<SQLTable<T>, R> operation, Consumer<R> callback) {
+        return callback(supply(operation), callback);
+    }
+
+    public CompletableFuture<SQLTable<T>> insert(T o) {
+        return supply(table -> table.insert(o));
+    }
+
+    public CompletableFuture<BatchResult> insertAll(Collection<T> data) {
+        return supply(table -> table.insertAll(data));
+    }
+
+    public CompletableFuture<SQLTable<T>> save(T o) {
+        return supply(table -> table.save(o));
+    }
+
+    public CompletableFuture<BatchResult> saveAll(Collection<T> data) {
+        return supply(table -> table.saveAll(data));
+    }
+
+    public CompletableFuture<T> getRow(String column, Object key) {
+        return supply(table -> table.getRow(column, key));
+    }
+
+    public CompletableFuture<T> getRow(String[] columns, Object... keys) {
+        return supply(table -> table.getRow(columns, keys));
+    }
+
+    public <K> CompletableFuture<Map<K, T>> getRows(String column, Collection<K> keys) {
+        return supply(table -> table.getRows(column, keys));
+    }
+
+    public CompletableFuture<List<T>> getAll() {
+        return supply(SQLTable::getAll);
+    }
+
+    public CompletableFuture<Page<T>> page(String orderColumn, Object afterKey, int limit) {
+        return supply(table -> table.page(orderColumn, afterKey, limit));
+    }
+
+    public CompletableFuture<List<T>> list(Query<T> query) {
+        return supply(table -> query.list());
+    }
+
+    public CompletableFuture<Long> count(Condition... conditions) {
+        return supply(table -> table.count(conditions));
+    }
+
+    public CompletableFuture<Boolean> exists(Condition... conditions) {
+        return supply(table -> table.exists(conditions));
+    }
+
+    public <C> CompletableFuture<C> getData(String column, Object key) {
+        return supply(table -> table.getData(column, key));
+    }
+
+    public CompletableFuture<SQLTable<T>> update(String checkColumn, Object key, String valueColumn, Object value) {
+        return supply(table -> table.update(checkColumn, key, valueColumn, value));
+    }
+
+    public CompletableFuture<BatchResult> updateAll(String checkColumn, String valueColumn, Map<?, ?> values) {
+        return supply(table -> table.updateAll(checkColumn, valueColumn, values));
+    }
+
+    public CompletableFuture<SQLTable<T>> remove(String column, Object key) {
+        return supply(table -> table.remove(column, key));
+    }
+
+    public CompletableFuture<BatchResult> removeAll(String column, Collection<?> keys) {
+        return supply(table -> table.removeAll(column, keys));
+    }
+
+    public CompletableFuture<Boolean> contains(String column, Object key) {
+        return supply(table -> table.contains(column, key));
+    }
+
+    public CompletableFuture<Boolean> contains(T data) {
+        return supply(table -> table.contains(data));
+    }
+
+    public CompletableFuture<SQLTable<T>> empty() {
+        return supply(SQLTable::empty);
+    }
+}
@@ -0,0 +1,43 @@
+package io.github.whoisalphahelix.sql;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@ToString
+public class BatchResult {
+
+    private final List<int[]> chunks = new ArrayList<>();
+    private boolean committed;
+    private int rejectedRows;
+
+    void addChunk(int[] updateCounts) {
+        chunks.add(updateCounts);
+    }
+
+    void setCommitted(boolean committed) {
+        this.committed = committed;
+    }
+
+    void setRejectedRows(int rejectedRows) {
+        this.rejectedRows = rejectedRows;
+    }
+
+    public int getChunkCount() {
+        return chunks.size();
+    }
+
+    public int getAffectedRows() {
+        int rows = 0;
+
+        for (int[] chunk : chunks)
+            for (int count : chunk)
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+
+        return rows;
+    }
+}
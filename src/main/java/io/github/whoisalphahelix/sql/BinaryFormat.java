@@ -0,0 +1,555 @@
+package io.github.whoisalphahelix.sql;
+
+import com.google.gson.*;
+import lombok.Getter;
+
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public class BinaryFormat {
+
+    private static final int MAGIC = 0xB5;
+    private static final int COMPRESSED = 1;
+    private static final int DECLARED = 2;
+    private static final int SCALAR = 4;
+    private static final int DEFAULT_COMPRESSION_THRESHOLD = 512;
+
+    private static final int NULL = 0;
+    private static final int FALSE = 1;
+    private static final int TRUE = 2;
+    private static final int INT = 3;
+    private static final int LONG = 4;
+    private static final int SHORT = 5;
+    private static final int BYTE = 6;
+    private static final int FLOAT = 7;
+    private static final int DOUBLE = 8;
+    private static final int CHAR = 9;
+    private static final int STRING = 10;
+    private static final int BYTES = 11;
+    private static final int DECIMAL = 12;
+    private static final int ARRAY = 13;
+    private static final int OBJECT = 14;
+
+    private static final JsonHelper JSON_HELPER = new JsonHelper();
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(Deflater::new);
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    private final Map<Class<?>, Integer> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, Class<?>> types = new ConcurrentHashMap<>();
+    private final Map<String, Class<?>> names = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Codec> codecs = new ConcurrentHashMap<>();
+    @Getter
+    private volatile int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+
+    public synchronized BinaryFormat register(int id, Class<?> type) {
+        if (id <= 0)
+            throw new IllegalArgumentException("Type ids must be positive, got " + id);
+
+        Class<?> registered = types.get(id);
+        Integer registeredId = ids.get(type);
+
+        if (registered != null && registered != type)
+            throw new IllegalArgumentException("Type id " + id + " is already registered for " + registered.getName());
+        if (registeredId != null && registeredId != id)
+            throw new IllegalArgumentException(type.getName() + " is already registered with id " + registeredId);
+
+        types.put(id, type);
+        ids.put(type, id);
+        return this;
+    }
+
+    public BinaryFormat setCompressionThreshold(int compressionThreshold) {
+        if (compressionThreshold < 0)
+            throw new IllegalArgumentException("Compression threshold must not be negative, got " + compressionThreshold);
+
+        this.compressionThreshold = compressionThreshold;
+        return this;
+    }
+
+    public ColumnCodec<Object> codec(Class<?> declared) {
+        Class<?> type = declared == null ? Object.class : MethodType.methodType(declared).wrap().returnType();
+
+        return codecs.computeIfAbsent(type, Codec::new);
+    }
+
+    public byte[] encode(Object value, Class<?> declared) {
+        if (value == null)
+            return null;
+
+        Output payload = new Output(64);
+        Output header = new Output(16);
+        int flags = 0;
+
+        header.write(MAGIC);
+        header.write(0);
+
+        if (writeScalar(payload, value)) {
+            flags |= SCALAR;
+        } else {
+            Class<?> type = value.getClass();
+            Integer id = ids.get(type);
+
+            if (type == declared) {
+                flags |= DECLARED;
+            } else if (id != null) {
+                header.writeVarLong(id);
+            } else {
+                header.writeVarLong(0);
+                header.writeString(type.getName());
+            }
+
+            writeElement(payload, JsonHelper.gson().toJsonTree(value), new HashMap<>());
+        }
+
+        if (payload.size >= compressionThreshold) {
+            byte[] compressed = deflate(payload.buffer, payload.size);
+
+            if (compressed != null) {
+                flags |= COMPRESSED;
+                header.writeVarLong(payload.size);
+                payload = new Output(compressed);
+            }
+        }
+
+        header.buffer[1] = (byte) flags;
+        header.write(payload.buffer, payload.size);
+
+        return header.toByteArray();
+    }
+
+    public Object decode(byte[] bytes, Class<?> declared) throws SQLException {
+        if (bytes == null)
+            return null;
+        if (bytes.length == 0 || (bytes[0] & 0xFF) != MAGIC)
+            return JSON_HELPER.fromJsonTree(JsonHelper.gson(), new String(bytes, StandardCharsets.UTF_8));
+
+        Input in = new Input(bytes, 2);
+        int flags = bytes[1];
+        Class<?> type = null;
+
+        if ((flags & SCALAR) == 0)
+            type = (flags & DECLARED) != 0 ? declared : readType(in);
+
+        if ((flags & COMPRESSED) != 0) {
+            int length = (int) in.readVarLong();
+            in = new Input(inflate(bytes, in.position, length), 0);
+        }
+
+        if (type == null)
+            return readScalar(in, in.read());
+
+        return JsonHelper.gson().fromJson(readElement(in, new ArrayList<>()), type);
+    }
+
+    private Class<?> readType(Input in) throws SQLException {
+        int id = (int) in.readVarLong();
+
+        if (id != 0) {
+            Class<?> type = types.get(id);
+
+            if (type == null)
+                throw new SQLException("Unknown binary type id " + id + ", register it with BinaryFormat.register");
+
+            return type;
+        }
+
+        String name = in.readString();
+        Class<?> type = names.get(name);
+
+        if (type != null)
+            return type;
+
+        try {
+            type = Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("Unknown binary type " + name, e);
+        }
+
+        names.put(name, type);
+        return type;
+    }
+
+    private static boolean writeScalar(Output out, Object value) {
+        if (value instanceof String) {
+            out.write(STRING);
+            out.writeString((String) value);
+        } else if (value instanceof Integer) {
+            out.write(INT);
+            out.writeVarLong(zigZag((Integer) value));
+        } else if (value instanceof Long) {
+            out.write(LONG);
+            out.writeVarLong(zigZag((Long) value));
+        } else if (value instanceof Double) {
+            out.write(DOUBLE);
+            out.writeFixed(Double.doubleToRawLongBits((Double) value), 8);
+        } else if (value instanceof Boolean) {
+            out.write((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Float) {
+            out.write(FLOAT);
+            out.writeFixed(Float.floatToRawIntBits((Float) value), 4);
+        } else if (value instanceof Short) {
+            out.write(SHORT);
+            out.writeVarLong(zigZag((Short) value));
+        } else if (value instanceof Byte) {
+            out.write(BYTE);
+            out.writeVarLong(zigZag((Byte) value));
+        } else if (value instanceof Character) {
+            out.write(CHAR);
+            out.writeVarLong((Character) value);
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+
+            out.write(BYTES);
+            out.writeVarLong(bytes.length);
+            out.write(bytes, bytes.length);
+        } else {
+            return false;
+        }
+
+        return true;
+    }
+
+    private static Object readScalar(Input in, int tag) throws SQLException {
+        switch (tag) {
+            case STRING:
+                return in.readString();
+            case INT:
+                return (int) unZigZag(in.readVarLong());
+            case LONG:
+                return unZigZag(in.readVarLong());
+            case DOUBLE:
+                return Double.longBitsToDouble(in.readFixed(8));
+            case TRUE:
+                return true;
+            case FALSE:
+                return false;
+            case FLOAT:
+                return Float.intBitsToFloat((int) in.readFixed(4));
+            case SHORT:
+                return (short) unZigZag(in.readVarLong());
+            case BYTE:
+                return (byte) unZigZag(in.readVarLong());
+            case CHAR:
+                return (char) in.readVarLong();
+            case BYTES:
+                return in.readBytes((int) in.readVarLong());
+            default:
+                throw new SQLException("Unknown binary scalar tag " + tag);
+        }
+    }
+
+    private static void writeElement(Output out, JsonElement element, Map<String, Integer> keys) {
+        if (element == null || element.isJsonNull()) {
+            out.write(NULL);
+        } else if (element.isJsonPrimitive()) {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+
+            if (primitive.isBoolean()) {
+                out.write(primitive.getAsBoolean() ? TRUE : FALSE);
+            } else if (primitive.isString()) {
+                out.write(STRING);
+                out.writeString(primitive.getAsString());
+            } else {
+                Number number = primitive.getAsNumber();
+
+                if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+                    out.write(LONG);
+                    out.writeVarLong(zigZag(number.longValue()));
+                } else if (number instanceof Double || number instanceof Float) {
+                    out.write(DOUBLE);
+                    out.writeFixed(Double.doubleToRawLongBits(number.doubleValue()), 8);
+                } else {
+                    out.write(DECIMAL);
+                    out.writeString(number.toString());
+                }
+            }
+        } else if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+
+            out.write(ARRAY);
+            out.writeVarLong(array.size());
+
+            for (JsonElement item : array)
+                writeElement(out, item, keys);
+        } else {
+            Set<Map.Entry<String, JsonElement>> entries = element.getAsJsonObject().entrySet();
+
+            out.write(OBJECT);
+            out.writeVarLong(entries.size());
+
+            for (Map.Entry<String, JsonElement> entry : entries) {
+                Integer key = keys.get(entry.getKey());
+
+                if (key != null) {
+                    out.writeVarLong(key + 1);
+                } else {
+                    out.writeVarLong(0);
+                    out.writeString(entry.getKey());
+                    keys.put(entry.getKey(), keys.size());
+                }
+
+                writeElement(out, entry.getValue(), keys);
+            }
+        }
+    }
+
+    private static JsonElement readElement(Input in, List<String> keys) throws SQLException {
+        int tag = in.read();
+
+        switch (tag) {
+            case NULL:
+                return JsonNull.INSTANCE;
+            case TRUE:
+                return new JsonPrimitive(true);
+            case FALSE:
+                return new JsonPrimitive(false);
+            case STRING:
+                return new JsonPrimitive(in.readString());
+            case LONG:
+                return new JsonPrimitive(unZigZag(in.readVarLong()));
+            case DOUBLE:
+                return new JsonPrimitive(Double.longBitsToDouble(in.readFixed(8)));
+            case DECIMAL:
+                return new JsonPrimitive(new BigDecimal(in.readString()));
+            case ARRAY: {
+                int size = (int) in.readVarLong();
+                JsonArray array = new JsonArray(size);
+
+                for (int i = 0; i < size; i++)
+                    array.add(readElement(in, keys));
+
+                return array;
+            }
+            case OBJECT: {
+                int size = (int) in.readVarLong();
+                JsonObject object = new JsonObject();
+
+                for (int i = 0; i < size; i++) {
+                    int ref = (int) in.readVarLong();
+                    String key;
+
+                    if (ref == 0) {
+                        key = in.readString();
+                        keys.add(key);
+                    } else {
+                        key = keys.get(ref - 1);
+                    }
+
+                    object.add(key, readElement(in, keys));
+                }
+
+                return object;
+            }
+            default:
+                throw new SQLException("Unknown binary element tag " + tag);
+        }
+    }
+
+    private static byte[] deflate(byte[] data, int length) {
+        Deflater deflater = DEFLATER.get();
+        byte[] buffer = new byte[length];
+        int size = 0;
+
+        deflater.reset();
+        deflater.setInput(data, 0, length);
+        deflater.finish();
+
+        while (!deflater.finished() && size < buffer.length)
+            size += deflater.deflate(buffer, size, buffer.length - size);
+
+        return deflater.finished() && size < length ? Arrays.copyOf(buffer, size) : null;
+    }
+
+    private static byte[] inflate(byte[] data, int offset, int length) throws SQLException {
+        Inflater inflater = INFLATER.get();
+        byte[] buffer = new byte[length];
+        int size = 0;
+
+        inflater.reset();
+        inflater.setInput(data, offset, data.length - offset);
+
+        try {
+            while (size < length && !inflater.finished()) {
+                int read = inflater.inflate(buffer, size, length - size);
+
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+
+                size += read;
+            }
+        } catch (DataFormatException e) {
+            throw new SQLException("Corrupt compressed column value", e);
+        }
+
+        if (size != length)
+            throw new SQLException("Corrupt compressed column value, expected " + length + " bytes but got " + size);
+
+        return buffer;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    final class Codec implements ColumnCodec<Object> {
+        private final Class<?> declared;
+
+        private Codec(Class<?> declared) {
+            this.declared = declared;
+        }
+
+        @Override
+        public Class<Object> getType() {
+            return Object.class;
+        }
+
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            return decode(rs.getBytes(index), declared);
+        }
+
+        @Override
+        public void write(PreparedStatement prep, int index, Object value) throws SQLException {
+            prep.setBytes(index, encode(value));
+        }
+
+        byte[] encode(Object value) {
+            return BinaryFormat.this.encode(value, declared);
+        }
+    }
+
+    private static final class Output {
+        private byte[] buffer;
+        private int size;
+
+        Output(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        Output(byte[] buffer) {
+            this.buffer = buffer;
+            this.size = buffer.length;
+        }
+
+        void write(int value) {
+            ensure(1);
+            buffer[size++] = (byte) value;
+        }
+
+        void write(byte[] bytes, int length) {
+            ensure(length);
+            System.arraycopy(bytes, 0, buffer, size, length);
+            size += length;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+
+            buffer[size++] = (byte) value;
+        }
+
+        void writeFixed(long value, int bytes) {
+            ensure(bytes);
+
+            for (int i = 0; i < bytes; i++)
+                buffer[size++] = (byte) (value >>> (i * 8));
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+            writeVarLong(bytes.length);
+            write(bytes, bytes.length);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length)
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+    private static final class Input {
+        private final byte[] buffer;
+        private int position;
+
+        Input(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        int read() throws SQLException {
+            if (position >= buffer.length)
+                throw new SQLException("Truncated binary column value");
+
+            return buffer[position++] & 0xFF;
+        }
+
+        long readVarLong() throws SQLException {
+            long value = 0;
+
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = read();
+
+                value |= (long) (b & 0x7F) << shift;
+
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+
+            throw new SQLException("Malformed varint in binary column value");
+        }
+
+        long readFixed(int bytes) throws SQLException {
+            long value = 0;
+
+            for (int i = 0; i < bytes; i++)
+                value |= (long) read() << (i * 8);
+
+            return value;
+        }
+
+        byte[] readBytes(int length) throws SQLException {
+            if (length < 0 || position + length > buffer.length)
+                throw new SQLException("Truncated binary column value");
+
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+
+            position += length;
+            return bytes;
+        }
+
+        String readString() throws SQLException {
+            int length = (int) readVarLong();
+
+            if (length < 0 || position + length > buffer.length)
+                throw new SQLException("Truncated binary column value");
+
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+
+            position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package io.github.whoisalphahelix.sql;
+
+import lombok.Getter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+public class ChangeLog implements AutoCloseable {
+
+    static final Object ALL = new Object();
+
+    private static final String CREATE = "CREATE TABLE IF NOT EXISTS %s (%s %s,%s VARCHAR(255) NOT NULL,%s VARCHAR(255),%s VARCHAR(36) NOT NULL,%s BIGINT NOT NULL)";
+    private static final String APPEND = "INSERT INTO %s (%s,%s,%s,%s) VALUES (?,?,?,?)";
+    private static final String SELECT_AFTER = "SELECT %s,%s,%s,%s FROM %s WHERE %s > ? ORDER BY %s";
+    private static final String SELECT_IN = "SELECT %s,%s,%s,%s FROM %s WHERE %s IN (%s)";
+    private static final String SELECT_MAX = "SELECT MAX(%s) FROM %s";
+    private static final String PRUNE = "DELETE FROM %s WHERE %s < ?";
+    private static final String VERSION = "version";
+    private static final String TABLE = "table_name";
+    private static final String KEY = "row_key";
+    private static final String ORIGIN = "origin";
+    private static final String CREATED = "created_at";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int MAX_KEYS = 1000;
+    private static final int POLL_LIMIT = 1000;
+    private static final int MAX_GAPS = 1000;
+    private static final long GAP_TIMEOUT_MILLIS = 30_000;
+
+    private final SQL sql;
+    @Getter
+    private final String tableName;
+    @Getter
+    private final String origin = UUID.randomUUID().toString();
+    @Getter
+    private final Duration retention;
+    @Getter
+    private final String appendQuery;
+    private final String selectQuery;
+    private final String selectInQuery;
+    private final List<BiConsumer<String, String>> listeners = new CopyOnWriteArrayList<>();
+    private final TreeMap<Long, Long> gaps = new TreeMap<>();
+    private volatile ScheduledExecutorService scheduler;
+    @Getter
+    private volatile long highWaterMark;
+    private long lastPoll;
+
+    ChangeLog(SQL sql, String tableName, Duration retention) {
+        Dialect dialect = sql.getDialect();
+
+        this.sql = sql;
+        this.tableName = tableName;
+        this.retention = retention;
+        this.appendQuery = String.format(APPEND, dialect.quote(tableName), dialect.quote(TABLE), dialect.quote(KEY),
+                dialect.quote(ORIGIN), dialect.quote(CREATED));
+        this.selectQuery = dialect.limit(String.format(SELECT_AFTER, dialect.quote(VERSION), dialect.quote(TABLE), dialect.quote(KEY),
+                dialect.quote(ORIGIN), dialect.quote(tableName), dialect.quote(VERSION), dialect.quote(VERSION)));
+        this.selectInQuery = String.format(SELECT_IN, dialect.quote(VERSION), dialect.quote(TABLE), dialect.quote(KEY),
+                dialect.quote(ORIGIN), dialect.quote(tableName), dialect.quote(VERSION), "%s");
+    }
+
+    String createQuery() {
+        Dialect dialect = sql.getDialect();
+
+        return String.format(CREATE, dialect.quote(tableName), dialect.quote(VERSION), dialect.identityColumnType(),
+                dialect.quote(TABLE), dialect.quote(KEY), dialect.quote(ORIGIN), dialect.quote(CREATED));
+    }
+
+    synchronized void start(Duration pollInterval) {
+        highWaterMark = readHighWaterMark();
+        lastPoll = System.currentTimeMillis();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sql-change-log-" + tableName);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long interval = pollInterval.toMillis();
+        long pruneInterval = Math.max(1000, retention.toMillis() / 2);
+
+        scheduler.scheduleWithFixedDelay(this::poll, interval, interval, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::prune, pruneInterval, pruneInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public ChangeLog onChange(BiConsumer<String, String> listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    public synchronized int poll() {
+        if (!sql.getDataSource().isRunning())
+            return 0;
+
+        long now = System.currentTimeMillis();
+
+        if (now - lastPoll > retention.toMillis()) {
+            sql.invalidateLogged(null, null);
+            gaps.clear();
+        }
+
+        gaps.values().removeIf(seen -> now - seen > GAP_TIMEOUT_MILLIS);
+
+        int applied = 0;
+
+        // Versions skipped by the forward read may still commit later, so they are re-checked by key
+        // instead of re-reading from the oldest gap, which would never get past a long run of newer rows.
+        if (!gaps.isEmpty()) {
+            List<Entry> filled = readGaps(new ArrayList<>(gaps.keySet()));
+
+            if (filled == null)
+                return applied;
+
+            for (Entry entry : filled) {
+                gaps.remove(entry.version);
+                apply(entry);
+                applied++;
+            }
+        }
+
+        List<Entry> entries;
+
+        do {
+            entries = read(highWaterMark);
+
+            if (entries == null)
+                return applied;
+
+            for (Entry entry : entries) {
+                if (entry.version <= highWaterMark)
+                    continue;
+
+                long skipped = entry.version - highWaterMark - 1;
+
+                if (gaps.size() + skipped > MAX_GAPS) {
+                    sql.invalidateLogged(null, null);
+                } else {
+                    for (long gap = highWaterMark + 1; gap < entry.version; gap++)
+                        gaps.put(gap, now);
+                }
+
+                highWaterMark = entry.version;
+                apply(entry);
+                applied++;
+            }
+        } while (entries.size() == POLL_LIMIT);
+
+        lastPoll = now;
+        return applied;
+    }
+
+    public int prune() {
+        if (!sql.getDataSource().isRunning())
+            return 0;
+
+        Dialect dialect = sql.getDialect();
+
+        try (Connection con = sql.getDataSource().getConnection();
+             PreparedStatement prep = con.prepareStatement(String.format(PRUNE, dialect.quote(tableName), dialect.quote(CREATED)))) {
+            prep.setLong(1, System.currentTimeMillis() - retention.toMillis());
+            return prep.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return 0;
+    }
+
+    void append(PreparedStatement prep, String table, Collection<?> keys) throws SQLException {
+        Set<String> texts = new LinkedHashSet<>();
+
+        for (Object key : keys) {
+            String text = keyText(key);
+
+            if (text == null || texts.size() >= MAX_KEYS) {
+                texts = Collections.singleton(null);
+                break;
+            }
+
+            texts.add(text);
+        }
+
+        long now = System.currentTimeMillis();
+
+        for (String text : texts) {
+            prep.setString(1, table);
+            if (text == null)
+                prep.setNull(2, Types.VARCHAR);
+            else
+                prep.setString(2, text);
+
+            prep.setString(3, origin);
+            prep.setLong(4, now);
+            prep.addBatch();
+        }
+
+        prep.executeBatch();
+    }
+
+    @Override
+    public void close() {
+        ScheduledExecutorService scheduler = this.scheduler;
+
+        this.scheduler = null;
+
+        if (scheduler != null)
+            scheduler.shutdown();
+    }
+
+    static Object parseKey(Class<?> type, String text) {
+        try {
+            if (type == Long.class || type == Integer.class || type == Short.class || type == Byte.class)
+                return Long.parseLong(text);
+            if (type == String.class)
+                return text;
+            if (type == UUID.class)
+                return UUID.fromString(text);
+            if (type == Instant.class)
+                return Instant.parse(text);
+            if (type == Double.class)
+                return Double.valueOf(text);
+            if (type == Float.class)
+                return Float.valueOf(text);
+            if (type == Boolean.class)
+                return Boolean.valueOf(text);
+            if (type == Character.class && text.length() == 1)
+                return text.charAt(0);
+            if (type.isEnum())
+                for (Object constant : type.getEnumConstants())
+                    if (((Enum<?>) constant).name().equals(text))
+                        return constant;
+        } catch (IllegalArgumentException | DateTimeException e) {
+            return null;
+        }
+
+        return null;
+    }
+
+    private static String keyText(Object key) {
+        String text;
+
+        if (key instanceof Enum)
+            text = ((Enum<?>) key).name();
+        else if (key instanceof Number || key instanceof String || key instanceof UUID || key instanceof Instant
+                || key instanceof Character || key instanceof Boolean)
+            text = String.valueOf(key);
+        else
+            return null;
+
+        return text.length() > MAX_KEY_LENGTH ? null : text;
+    }
+
+    private long readHighWaterMark() {
+        Dialect dialect = sql.getDialect();
+
+        try (Connection con = sql.getDataSource().getConnection();
+             PreparedStatement prep = con.prepareStatement(String.format(SELECT_MAX, dialect.quote(VERSION), dialect.quote(tableName)));
+             ResultSet rs = prep.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return 0;
+    }
+
+    private List<Entry> read(long floor) {
+        try (Connection con = sql.getDataSource().getConnection();
+             PreparedStatement prep = con.prepareStatement(selectQuery)) {
+            prep.setLong(1, floor);
+            prep.setInt(2, POLL_LIMIT);
+
+            List<Entry> entries = new ArrayList<>();
+
+            try (ResultSet rs = prep.executeQuery()) {
+                while (rs.next())
+                    entries.add(read(rs));
+            }
+
+            return entries;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    private List<Entry> readGaps(List<Long> versions) {
+        int chunkSize = Math.max(1, Math.min(POLL_LIMIT, sql.getDialect().getMaxParameters()));
+        List<Entry> entries = new ArrayList<>();
+
+        try (Connection con = sql.getDataSource().getConnection()) {
+            for (int i = 0; i < versions.size(); i += chunkSize) {
+                List<Long> chunk = versions.subList(i, Math.min(versions.size(), i + chunkSize));
+                String query = String.format(selectInQuery, String.join(",", Collections.nCopies(chunk.size(), "?")));
+
+                try (PreparedStatement prep = con.prepareStatement(query)) {
+                    for (int j = 0; j < chunk.size(); j++)
+                        prep.setLong(j + 1, chunk.get(j));
+
+                    try (ResultSet rs = prep.executeQuery()) {
+                        while (rs.next())
+                            entries.add(read(rs));
+                    }
+                }
+            }
+
+            return entries;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    private void apply(Entry entry) {
+        if (!origin.equals(entry.origin))
+            sql.invalidateLogged(entry.table, entry.key);
+
+        for (BiConsumer<String, String> listener : listeners) {
+            try {
+                listener.accept(entry.table, entry.key);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static Entry read(ResultSet rs) throws SQLException {
+        return new Entry(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4));
+    }
+
+    private static final class Entry {
+        private final long version;
+        private final String table;
+        private final String key;
+        private final String origin;
+
+        Entry(long version, String table, String key, String origin) {
+            this.version = version;
+            this.table = table;
+            this.key = key;
+            this.origin = origin;
+        }
+    }
+}
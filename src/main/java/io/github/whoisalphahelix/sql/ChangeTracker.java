@@ -0,0 +1,210 @@
+package io.github.whoisalphahelix.sql;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.*;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+final class ChangeTracker<T> {
+
+    private static final Object UNTRACKED = new Object();
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.asList(
+            BigDecimal.class, BigInteger.class, UUID.class, Instant.class, Duration.class,
+            LocalDate.class, LocalTime.class, LocalDateTime.class, OffsetDateTime.class, ZonedDateTime.class));
+
+    private final EntityMapper.FieldMapping[] fields;
+    private final EntityMapper.FieldMapping key;
+    private final EntityCache<Object[]> snapshots;
+
+    ChangeTracker(EntityMapper<T> entityMapper, String primaryKey, int maximumSize) {
+        this.fields = entityMapper.getFields();
+        this.key = entityMapper.column(primaryKey);
+        this.snapshots = EntityCache.<Object[]>builder().maximumSize(maximumSize).build();
+    }
+
+    void loaded(ResultSet rs, T entity) throws SQLException {
+        Object[] snapshot = new Object[fields.length];
+
+        for (int i = 0; i < fields.length; i++) {
+            EntityMapper.FieldMapping field = fields[i];
+
+            if (field.getCodec() == ColumnCodecs.JSON)
+                snapshot[i] = hash(rs.getString(i + 1));
+            else if (field.getCodec() instanceof BinaryFormat.Codec)
+                snapshot[i] = hash(rs.getBytes(i + 1));
+            else
+                snapshot[i] = fingerprint(field.get(entity));
+        }
+
+        Object id = key.get(entity);
+
+        if (id != null)
+            snapshots.put(id, snapshot);
+    }
+
+    Changes diff(T entity) throws SQLException {
+        Object id = key.get(entity);
+        Object[] snapshot = id == null ? null : snapshots.get(id);
+        Object[] values = new Object[fields.length];
+        Object[] fingerprints = new Object[fields.length];
+        boolean[] dirty = new boolean[fields.length];
+        int changed = 0;
+
+        for (int i = 0; i < fields.length; i++) {
+            EntityMapper.FieldMapping field = fields[i];
+            Object value = field.get(entity);
+
+            if (value != null && field.getCodec() == ColumnCodecs.JSON) {
+                String json = ColumnCodecs.toJson(value);
+
+                values[i] = json;
+                fingerprints[i] = hash(json);
+            } else if (value != null && field.getCodec() instanceof BinaryFormat.Codec) {
+                byte[] bytes = ((BinaryFormat.Codec) field.getCodec()).encode(value);
+
+                values[i] = bytes;
+                fingerprints[i] = hash(bytes);
+            } else {
+                values[i] = value;
+                fingerprints[i] = fingerprint(value);
+            }
+
+            dirty[i] = snapshot == null || fingerprints[i] == UNTRACKED || snapshot[i] == UNTRACKED
+                    || !Objects.equals(fingerprints[i], snapshot[i]);
+
+            if (dirty[i])
+                changed++;
+        }
+
+        return new Changes(id, snapshot != null, values, fingerprints, dirty, changed);
+    }
+
+    void saved(Changes changes) {
+        if (changes.getKey() != null)
+            snapshots.put(changes.getKey(), changes.fingerprints);
+    }
+
+    void invalidate(Object id) {
+        snapshots.invalidate(id);
+    }
+
+    void invalidateAll() {
+        snapshots.invalidateAll();
+    }
+
+    long size() {
+        return snapshots.size();
+    }
+
+    private static Object fingerprint(Object value) {
+        if (value == null)
+            return null;
+
+        if (value instanceof byte[])
+            return hash((byte[]) value);
+
+        Class<?> type = value.getClass();
+
+        if (TypeHelper.isPrimitive(type) || type.isEnum() || IMMUTABLE_TYPES.contains(type))
+            return value;
+
+        return UNTRACKED;
+    }
+
+    private static Long hash(String value) {
+        if (value == null)
+            return null;
+
+        long hash = FNV_OFFSET;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+
+        return hash;
+    }
+
+    private static Long hash(byte[] value) {
+        if (value == null)
+            return null;
+
+        long hash = FNV_OFFSET;
+
+        for (byte b : value)
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+
+        return hash;
+    }
+
+    @Getter
+    final class Changes {
+        private final Object key;
+        private final boolean tracked;
+        private final Object[] values;
+        private final Object[] fingerprints;
+        private final boolean[] dirty;
+        private final int changed;
+
+        private Changes(Object key, boolean tracked, Object[] values, Object[] fingerprints, boolean[] dirty, int changed) {
+            this.key = key;
+            this.tracked = tracked;
+            this.values = values;
+            this.fingerprints = fingerprints;
+            this.dirty = dirty;
+            this.changed = changed;
+        }
+
+        boolean isClean() {
+            return tracked && changed == 0;
+        }
+
+        String[] columns() {
+            String[] columns = new String[changed];
+
+            for (int i = 0, j = 0; i < fields.length; i++)
+                if (dirty[i])
+                    columns[j++] = fields[i].getColumn();
+
+            return columns;
+        }
+
+        int bind(PreparedStatement prep, int index, boolean all, SQLMetrics metrics, String table) throws SQLException {
+            for (int i = 0; i < fields.length; i++) {
+                if (!all && !dirty[i])
+                    continue;
+
+                Object value = values[i];
+
+                if (value instanceof String && fields[i].getCodec() == ColumnCodecs.JSON) {
+                    prep.setString(index++, (String) value);
+
+                    if (metrics.isEnabled())
+                        metrics.recordEncoded(table, fields[i].getColumn(), ColumnCodecs.utf8Length((String) value));
+                } else if (value instanceof byte[] && fields[i].getCodec() instanceof BinaryFormat.Codec) {
+                    prep.setBytes(index++, (byte[]) value);
+
+                    if (metrics.isEnabled())
+                        metrics.recordEncoded(table, fields[i].getColumn(), ((byte[]) value).length);
+                } else {
+                    fields[i].write(prep, index++, value);
+                }
+            }
+
+            return index;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package io.github.whoisalphahelix.sql;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public interface ColumnCodec<V> {
+
+    static <V> ColumnCodec<V> of(Class<V> type, Reader<V> reader, Writer<V> writer) {
+        return new ColumnCodec<V>() {
+            @Override
+            public Class<V> getType() {
+                return type;
+            }
+
+            @Override
+            public V read(ResultSet rs, int index) throws SQLException {
+                return reader.read(rs, index);
+            }
+
+            @Override
+            public void write(PreparedStatement prep, int index, V value) throws SQLException {
+                writer.write(prep, index, value);
+            }
+        };
+    }
+
+    Class<V> getType();
+
+    V read(ResultSet rs, int index) throws SQLException;
+
+    void write(PreparedStatement prep, int index, V value) throws SQLException;
+
+    default boolean accepts(Object value) {
+        return getType().isInstance(value);
+    }
+
+    @FunctionalInterface
+    interface Reader<V> {
+        V read(ResultSet rs, int index) throws SQLException;
+    }
+
+    @FunctionalInterface
+    interface Writer<V> {
+        void write(PreparedStatement prep, int index, V value) throws SQLException;
+    }
+}
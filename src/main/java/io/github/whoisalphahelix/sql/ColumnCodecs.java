@@ -0,0 +1,276 @@
+package io.github.whoisalphahelix.sql;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+public class ColumnCodecs {
+
+    private static final JsonHelper JSON_HELPER = new JsonHelper();
+    private static final DateTimeFormatter INSTANT_FORMAT = new DateTimeFormatterBuilder().appendInstant(9).toFormatter(Locale.ROOT);
+
+    public static final ColumnCodec<Object> JSON = ColumnCodec.of(Object.class,
+            (rs, index) -> {
+                String value = rs.getString(index);
+                return value == null ? null : JSON_HELPER.fromJsonTree(JsonHelper.gson(), value);
+            },
+            (prep, index, value) -> prep.setString(index, toJson(value)));
+
+    private final BinaryFormat binaryFormat = new BinaryFormat();
+    private final Map<Class<?>, ColumnCodec<?>> byType = new ConcurrentHashMap<>();
+    private final Map<String, ColumnCodec<?>> bySqlType = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Map<String, ColumnCodec<?>>> byTypeAndSqlType = new ConcurrentHashMap<>();
+
+    public static ColumnCodecs defaults() {
+        ColumnCodecs codecs = new ColumnCodecs();
+
+        ColumnCodec<Integer> ints = new NumberCodec<>(Integer.class, (rs, index) -> {
+            int value = rs.getInt(index);
+            return rs.wasNull() ? null : value;
+        }, (prep, index, value) -> prep.setInt(index, value.intValue()));
+        ColumnCodec<Long> longs = new NumberCodec<>(Long.class, (rs, index) -> {
+            long value = rs.getLong(index);
+            return rs.wasNull() ? null : value;
+        }, (prep, index, value) -> prep.setLong(index, value.longValue()));
+        ColumnCodec<Double> doubles = new NumberCodec<>(Double.class, (rs, index) -> {
+            double value = rs.getDouble(index);
+            return rs.wasNull() ? null : value;
+        }, (prep, index, value) -> prep.setDouble(index, value.doubleValue()));
+        ColumnCodec<Float> floats = new NumberCodec<>(Float.class, (rs, index) -> {
+            float value = rs.getFloat(index);
+            return rs.wasNull() ? null : value;
+        }, (prep, index, value) -> prep.setFloat(index, value.floatValue()));
+        ColumnCodec<Short> shorts = new NumberCodec<>(Short.class, (rs, index) -> {
+            short value = rs.getShort(index);
+            return rs.wasNull() ? null : value;
+        }, (prep, index, value) -> prep.setShort(index, value.shortValue()));
+        ColumnCodec<Byte> bytes = new NumberCodec<>(Byte.class, (rs, index) -> {
+            byte value = rs.getByte(index);
+            return rs.wasNull() ? null : value;
+        }, (prep, index, value) -> prep.setByte(index, value.byteValue()));
+        ColumnCodec<Boolean> booleans = ColumnCodec.of(Boolean.class, (rs, index) -> {
+            Object value = rs.getObject(index);
+
+            if (value == null || value instanceof Boolean)
+                return (Boolean) value;
+            if (value instanceof Number)
+                return ((Number) value).intValue() != 0;
+
+            return value.toString().equals("1") || value.toString().equalsIgnoreCase("true");
+        }, (prep, index, value) -> prep.setBoolean(index, value));
+        ColumnCodec<byte[]> blobs = ColumnCodec.of(byte[].class, ResultSet::getBytes, PreparedStatement::setBytes);
+
+        codecs.register(int.class, ints).register(Integer.class, ints).register("INTEGER", ints).register("INT", ints)
+                .register(long.class, longs).register(Long.class, longs).register("BIGINT", longs)
+                .register(double.class, doubles).register(Double.class, doubles).register("DOUBLE", doubles).register("DOUBLE PRECISION", doubles).register("REAL", doubles)
+                .register(float.class, floats).register(Float.class, floats).register("FLOAT", floats)
+                .register(short.class, shorts).register(Short.class, shorts).register("SMALLINT", shorts)
+                .register(byte.class, bytes).register(Byte.class, bytes).register("TINYINT", bytes)
+                .register(boolean.class, booleans).register(Boolean.class, booleans).register("BIT", booleans).register("BOOLEAN", booleans)
+                .register(byte[].class, blobs).register("BLOB", blobs).register("LONGBLOB", blobs).register("BYTEA", blobs).register("VARBINARY", blobs);
+
+        codecs.register(String.class, ColumnCodec.of(String.class, ResultSet::getString, PreparedStatement::setString));
+        ColumnCodec<Character> chars = ColumnCodec.of(Character.class, (rs, index) -> {
+            String value = rs.getString(index);
+            return value == null || value.isEmpty() ? null : value.charAt(0);
+        }, (prep, index, value) -> prep.setString(index, value.toString()));
+
+        codecs.register(char.class, chars).register(Character.class, chars);
+        codecs.register(UUID.class, textCodec(UUID.class, UUID::fromString, UUID::toString));
+        codecs.register(Instant.class, textCodec(Instant.class, ColumnCodecs::parseInstant, INSTANT_FORMAT::format));
+
+        return codecs;
+    }
+
+    public static <V> ColumnCodec<V> textCodec(Class<V> type, Function<String, V> parser, Function<V, String> formatter) {
+        return new TextCodec<>(type, parser, formatter);
+    }
+
+    public static <E extends Enum<E>> ColumnCodec<E> enumCodec(Class<E> type) {
+        return textCodec(type, name -> Enum.valueOf(type, name), E::name);
+    }
+
+    public <V> ColumnCodecs register(Class<V> type, ColumnCodec<? extends V> codec) {
+        byType.put(type, codec);
+        return this;
+    }
+
+    public <V> ColumnCodecs register(Class<V> type, String sqlType, ColumnCodec<? extends V> codec) {
+        byTypeAndSqlType.computeIfAbsent(type, t -> new ConcurrentHashMap<>()).put(normalize(sqlType), codec);
+        return this;
+    }
+
+    public ColumnCodecs register(String sqlType, ColumnCodec<?> codec) {
+        bySqlType.put(normalize(sqlType), codec);
+        return this;
+    }
+
+    public BinaryFormat getBinaryFormat() {
+        return binaryFormat;
+    }
+
+    public ColumnCodec<Object> binary(Class<?> type) {
+        return binaryFormat.codec(type);
+    }
+
+    public ColumnCodec<Object> codec(Class<?> type, String sqlType) {
+        String key = sqlType == null ? null : normalize(sqlType);
+
+        if (type == null)
+            return cast(key == null ? JSON : bySqlType.getOrDefault(key, JSON));
+
+        Map<String, ColumnCodec<?>> typed = byTypeAndSqlType.get(type);
+
+        if (typed != null && key != null && typed.containsKey(key))
+            return cast(typed.get(key));
+
+        if ("JSON".equals(key))
+            return JSON;
+
+        ColumnCodec<?> codec = byType.get(type);
+
+        if (codec == null && type.isEnum())
+            codec = byType.computeIfAbsent(type, ColumnCodecs::rawEnumCodec);
+
+        return cast(codec == null ? JSON : codec);
+    }
+
+    static String toJson(Object value) {
+        return JSON_HELPER.toEscapedString(JsonHelper.gson(), value);
+    }
+
+    static int utf8Length(String value) {
+        int length = value.length();
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (Character.isHighSurrogate(c)) {
+                length += 2;
+                i++;
+            } else if (c >= 0x800) {
+                length += 2;
+            } else if (c >= 0x80) {
+                length++;
+            }
+        }
+
+        return length;
+    }
+
+    static boolean readsLegacyJson(ColumnCodec<?> codec) {
+        return codec instanceof TextCodec;
+    }
+
+    static String migrateLegacyJson(ColumnCodec<?> codec, String stored) {
+        if (!(codec instanceof TextCodec) || stored == null || !isLegacyJson(stored))
+            return null;
+
+        return ((TextCodec<?>) codec).convert(stored);
+    }
+
+    private static boolean isLegacyJson(String value) {
+        return value.startsWith("{") && value.contains("body");
+    }
+
+    private static Instant parseInstant(String value) {
+        if (!value.isEmpty() && value.chars().allMatch(c -> c == '-' || Character.isDigit(c)))
+            return Instant.ofEpochMilli(Long.parseLong(value));
+
+        return Instant.parse(value);
+    }
+
+    private static String normalize(String sqlType) {
+        int params = sqlType.indexOf('(');
+
+        return (params < 0 ? sqlType : sqlType.substring(0, params)).trim().toUpperCase(Locale.ROOT);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ColumnCodec<?> rawEnumCodec(Class<?> type) {
+        return enumCodec((Class) type);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ColumnCodec<Object> cast(ColumnCodec<?> codec) {
+        return (ColumnCodec<Object>) codec;
+    }
+
+    private static final class TextCodec<V> implements ColumnCodec<V> {
+        private final Class<V> type;
+        private final Function<String, V> parser;
+        private final Function<V, String> formatter;
+
+        TextCodec(Class<V> type, Function<String, V> parser, Function<V, String> formatter) {
+            this.type = type;
+            this.parser = parser;
+            this.formatter = formatter;
+        }
+
+        @Override
+        public Class<V> getType() {
+            return type;
+        }
+
+        @Override
+        public V read(ResultSet rs, int index) throws SQLException {
+            String value = rs.getString(index);
+
+            if (value == null)
+                return null;
+            if (isLegacyJson(value))
+                return type.cast(JSON_HELPER.fromJsonTree(JsonHelper.gson(), value));
+
+            return parser.apply(value);
+        }
+
+        @Override
+        public void write(PreparedStatement prep, int index, V value) throws SQLException {
+            prep.setString(index, formatter.apply(value));
+        }
+
+        String convert(String legacy) {
+            return formatter.apply(type.cast(JSON_HELPER.fromJsonTree(JsonHelper.gson(), legacy)));
+        }
+    }
+
+    private static final class NumberCodec<V extends Number> implements ColumnCodec<V> {
+        private final Class<V> type;
+        private final Reader<V> reader;
+        private final Writer<Number> writer;
+
+        NumberCodec(Class<V> type, Reader<V> reader, Writer<Number> writer) {
+            this.type = type;
+            this.reader = reader;
+            this.writer = writer;
+        }
+
+        @Override
+        public Class<V> getType() {
+            return type;
+        }
+
+        @Override
+        public V read(ResultSet rs, int index) throws SQLException {
+            return reader.read(rs, index);
+        }
+
+        @Override
+        public void write(PreparedStatement prep, int index, V value) throws SQLException {
+            writer.write(prep, index, value);
+        }
+
+        @Override
+        public boolean accepts(Object value) {
+            return value instanceof Number;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package io.github.whoisalphahelix.sql;
+
+import java.util.*;
+
+public final class Condition {
+
+    private static final Object[] NO_VALUES = new Object[0];
+    private static final Condition[] NO_CHILDREN = new Condition[0];
+
+    private final Operator operator;
+    private final String column;
+    private final Object[] values;
+    private final Condition[] children;
+
+    private Condition(Operator operator, String column, Object[] values, Condition[] children) {
+        this.operator = operator;
+        this.column = column;
+        this.values = values;
+        this.children = children;
+    }
+
+    public static Condition eq(String column, Object value) {
+        return value == null ? isNull(column) : compare(Operator.EQ, column, value);
+    }
+
+    public static Condition ne(String column, Object value) {
+        return value == null ? isNotNull(column) : compare(Operator.NE, column, value);
+    }
+
+    public static Condition lt(String column, Object value) {
+        return compare(Operator.LT, column, value);
+    }
+
+    public static Condition le(String column, Object value) {
+        return compare(Operator.LE, column, value);
+    }
+
+    public static Condition gt(String column, Object value) {
+        return compare(Operator.GT, column, value);
+    }
+
+    public static Condition ge(String column, Object value) {
+        return compare(Operator.GE, column, value);
+    }
+
+    public static Condition between(String column, Object from, Object to) {
+        return new Condition(Operator.BETWEEN, column, new Object[]{requireValue(column, from), requireValue(column, to)}, NO_CHILDREN);
+    }
+
+    public static Condition in(String column, Collection<?> values) {
+        return new Condition(Operator.IN, column, values.toArray(), NO_CHILDREN);
+    }
+
+    public static Condition in(String column, Object... values) {
+        return in(column, Arrays.asList(values));
+    }
+
+    public static Condition notIn(String column, Collection<?> values) {
+        return new Condition(Operator.NOT_IN, column, values.toArray(), NO_CHILDREN);
+    }
+
+    public static Condition like(String column, String pattern) {
+        return compare(Operator.LIKE, column, pattern);
+    }
+
+    public static Condition notLike(String column, String pattern) {
+        return compare(Operator.NOT_LIKE, column, pattern);
+    }
+
+    public static Condition isNull(String column) {
+        return new Condition(Operator.IS_NULL, column, NO_VALUES, NO_CHILDREN);
+    }
+
+    public static Condition isNotNull(String column) {
+        return new Condition(Operator.IS_NOT_NULL, column, NO_VALUES, NO_CHILDREN);
+    }
+
+    public static Condition and(Condition... conditions) {
+        return conditions.length == 1 ? conditions[0] : new Condition(Operator.AND, null, NO_VALUES, conditions.clone());
+    }
+
+    public static Condition or(Condition... conditions) {
+        return conditions.length == 1 ? conditions[0] : new Condition(Operator.OR, null, NO_VALUES, conditions.clone());
+    }
+
+    public static Condition not(Condition condition) {
+        return new Condition(Operator.NOT, null, NO_VALUES, new Condition[]{condition});
+    }
+
+    public Condition and(Condition other) {
+        return and(this, other);
+    }
+
+    public Condition or(Condition other) {
+        return or(this, other);
+    }
+
+    private static Condition compare(Operator operator, String column, Object value) {
+        return new Condition(operator, column, new Object[]{requireValue(column, value)}, NO_CHILDREN);
+    }
+
+    private static Object requireValue(String column, Object value) {
+        if (value == null)
+            throw new IllegalArgumentException("Cannot compare " + column + " against null, use isNull/isNotNull");
+
+        return value;
+    }
+
+    void columns(Collection<String> columns) {
+        if (column != null)
+            columns.add(column);
+
+        for (Condition child : children)
+            child.columns(columns);
+    }
+
+    void shape(StringBuilder key) {
+        key.append(operator.ordinal());
+
+        if (column != null)
+            key.append(':').append(column);
+
+        if (operator.isList())
+            key.append('#').append(paddedSize(values.length));
+
+        if (children.length > 0) {
+            key.append('(');
+
+            for (Condition child : children) {
+                child.shape(key);
+                key.append(',');
+            }
+
+            key.append(')');
+        }
+    }
+
+    void render(StringBuilder sql, Dialect dialect) {
+        switch (operator) {
+            case AND:
+            case OR:
+                if (children.length == 0) {
+                    sql.append(operator == Operator.AND ? "1 = 1" : "1 = 0");
+                    return;
+                }
+
+                sql.append('(');
+
+                for (int i = 0; i < children.length; i++) {
+                    if (i > 0)
+                        sql.append(operator.sql);
+
+                    children[i].render(sql, dialect);
+                }
+
+                sql.append(')');
+                return;
+            case NOT:
+                sql.append("NOT (");
+                children[0].render(sql, dialect);
+                sql.append(')');
+                return;
+            case IN:
+            case NOT_IN:
+                if (values.length == 0) {
+                    sql.append(operator == Operator.IN ? "1 = 0" : "1 = 1");
+                    return;
+                }
+
+                sql.append(dialect.quote(column)).append(operator.sql).append('(')
+                        .append(String.join(",", Collections.nCopies(paddedSize(values.length), "?"))).append(')');
+                return;
+            case BETWEEN:
+                sql.append(dialect.quote(column)).append(" BETWEEN ? AND ?");
+                return;
+            default:
+                sql.append(dialect.quote(column)).append(operator.sql);
+        }
+    }
+
+    void parameters(List<String> columns, List<Object> values) {
+        for (Object value : this.values) {
+            columns.add(operator == Operator.LIKE || operator == Operator.NOT_LIKE ? null : column);
+            values.add(value);
+        }
+
+        if (operator.isList()) {
+            for (int i = this.values.length; i < paddedSize(this.values.length); i++) {
+                columns.add(column);
+                values.add(this.values[this.values.length - 1]);
+            }
+        }
+
+        for (Condition child : children)
+            child.parameters(columns, values);
+    }
+
+    private static int paddedSize(int size) {
+        return size <= 1 ? size : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sql = new StringBuilder();
+
+        render(sql, Dialects.GENERIC);
+        return sql.toString();
+    }
+
+    private enum Operator {
+        EQ(" = ?"), NE(" <> ?"), LT(" < ?"), LE(" <= ?"), GT(" > ?"), GE(" >= ?"), LIKE(" LIKE ?"), NOT_LIKE(" NOT LIKE ?"),
+        IS_NULL(" IS NULL"), IS_NOT_NULL(" IS NOT NULL"), BETWEEN(" BETWEEN ? AND ?"), IN(" IN "), NOT_IN(" NOT IN "),
+        AND(" AND "), OR(" OR "), NOT("NOT ");
+
+        private final String sql;
+
+        Operator(String sql) {
+            this.sql = sql;
+        }
+
+        boolean isList() {
+            return this == IN || this == NOT_IN;
+        }
+    }
+}
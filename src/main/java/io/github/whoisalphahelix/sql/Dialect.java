@@ -0,0 +1,100 @@
+package io.github.whoisalphahelix.sql;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+public interface Dialect {
+
+    String getName();
+
+    default String columnType(Class<?> type) {
+        if (type.equals(int.class) || type.equals(Integer.class))
+            return "INTEGER";
+        else if (type.equals(double.class) || type.equals(Double.class))
+            return "DOUBLE";
+        else if (type.equals(float.class) || type.equals(Float.class))
+            return "FLOAT";
+        else if (type.equals(short.class) || type.equals(Short.class))
+            return "SMALLINT";
+        else if (type.equals(boolean.class) || type.equals(Boolean.class))
+            return "BIT";
+        else if (type.equals(long.class) || type.equals(Long.class))
+            return "BIGINT";
+        else if (type.equals(byte.class) || type.equals(Byte.class))
+            return "TINYINT";
+        else if (type.equals(String.class) || type.equals(UUID.class) || type.isEnum())
+            return "VARCHAR";
+        else if (type.equals(char.class) || type.equals(Character.class))
+            return "CHAR(1)";
+        else if (type.equals(Instant.class))
+            return "VARCHAR(40)";
+        else if (type.equals(byte[].class))
+            return "BLOB";
+
+        return "JSON";
+    }
+
+    default char getQuoteCharacter() {
+        return '"';
+    }
+
+    default String quote(String identifier) {
+        if (!Dialects.needsQuoting(identifier))
+            return identifier;
+
+        String quote = String.valueOf(getQuoteCharacter());
+        return quote + identifier.replace(quote, quote + quote) + quote;
+    }
+
+    default String upsert(String table, String[] columns, String key) {
+        String[] updates = Arrays.stream(columns).filter(column -> !column.equals(key)).toArray(String[]::new);
+
+        if (updates.length == 0)
+            return insertIgnore(table, columns, key);
+
+        return insert(table, columns) + " ON CONFLICT (" + quote(key) + ") DO UPDATE SET "
+                + Arrays.stream(updates).map(this::quote).map(column -> column + " = excluded." + column).collect(Collectors.joining(","));
+    }
+
+    default String insertIgnore(String table, String[] columns, String key) {
+        return insert(table, columns) + " ON CONFLICT DO NOTHING";
+    }
+
+    default String insert(String table, String[] columns) {
+        return "INSERT INTO " + quote(table) + " (" + Arrays.stream(columns).map(this::quote).collect(Collectors.joining(","))
+                + ") VALUES (" + String.join(",", Collections.nCopies(columns.length, "?")) + ")";
+    }
+
+    default String createIndex(String table, String name, String[] columns, boolean unique) {
+        return "CREATE " + (unique ? "UNIQUE " : "") + "INDEX IF NOT EXISTS " + quote(name) + " ON " + quote(table)
+                + " (" + Arrays.stream(columns).map(this::quote).collect(Collectors.joining(",")) + ")";
+    }
+
+    default boolean supportsCreateIndexIfNotExists() {
+        return true;
+    }
+
+    default String identityColumnType() {
+        return "BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY";
+    }
+
+    default int getMaxParameters() {
+        return 999;
+    }
+
+    default String limit(String query) {
+        return query + " LIMIT ?";
+    }
+
+    default String limitOffset(String query) {
+        return query + " LIMIT ? OFFSET ?";
+    }
+
+    default Map<String, String> getDataSourceProperties() {
+        return Collections.emptyMap();
+    }
+}
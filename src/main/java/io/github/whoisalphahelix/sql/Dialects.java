@@ -0,0 +1,44 @@
+package io.github.whoisalphahelix.sql;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+public class Dialects {
+
+    public static final Dialect GENERIC = () -> "generic";
+    public static final Dialect SQLITE = new SQLiteDialect();
+    public static final Dialect H2 = new H2Dialect();
+    public static final Dialect MYSQL = new MySQLDialect();
+    public static final Dialect POSTGRESQL = new PostgreSQLDialect();
+
+    private static final Pattern PLAIN_IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final Set<String> RESERVED = new HashSet<>(Arrays.asList(
+            "ALL", "AND", "AS", "ASC", "BETWEEN", "BY", "CASE", "CHECK", "COLUMN", "CONSTRAINT", "CREATE", "CROSS",
+            "DEFAULT", "DELETE", "DESC", "DISTINCT", "DROP", "ELSE", "END", "EXISTS", "FOREIGN", "FROM", "FULL",
+            "GROUP", "HAVING", "IN", "INDEX", "INNER", "INSERT", "INTO", "IS", "JOIN", "KEY", "LEFT", "LIKE", "LIMIT",
+            "NOT", "NULL", "OFFSET", "ON", "OR", "ORDER", "OUTER", "PRIMARY", "REFERENCES", "RIGHT", "ROW", "SELECT",
+            "SET", "TABLE", "THEN", "TO", "UNION", "UNIQUE", "UPDATE", "USER", "USING", "VALUE", "VALUES", "WHEN",
+            "WHERE", "WITH"));
+
+    public static Dialect of(String jdbcUrl) {
+        String url = jdbcUrl == null ? "" : jdbcUrl.toLowerCase(Locale.ROOT);
+
+        if (url.startsWith("jdbc:sqlite:"))
+            return SQLITE;
+        if (url.startsWith("jdbc:h2:"))
+            return H2;
+        if (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:"))
+            return MYSQL;
+        if (url.startsWith("jdbc:postgresql:"))
+            return POSTGRESQL;
+
+        return GENERIC;
+    }
+
+    static boolean needsQuoting(String identifier) {
+        return !PLAIN_IDENTIFIER.matcher(identifier).matches() || RESERVED.contains(identifier.toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,215 @@
+package io.github.whoisalphahelix.sql;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+public class EntityCache<T> {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment<T>[] segments;
+    private final long expireAfterWriteNanos;
+    private final ToLongFunction<T> weigher;
+    private final AtomicLong epoch = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Builder
+    @SuppressWarnings("unchecked") // generic array creation, the array never escapes this instance
+    private EntityCache(long maximumSize, long maximumWeight, ToLongFunction<T> weigher, Duration expireAfterWrite) {
+        int count = maximumSize > 0 && maximumSize < SEGMENTS * 4 ? 1 : SEGMENTS;
+
+        this.segments = (Segment<T>[]) new Segment<?>[count];
+        this.expireAfterWriteNanos = expireAfterWrite == null ? 0 : expireAfterWrite.toNanos();
+        this.weigher = weigher == null || maximumWeight <= 0 ? value -> 1 : weigher;
+
+        long maxWeight = maximumWeight > 0 ? maximumWeight : (maximumSize > 0 ? maximumSize : Long.MAX_VALUE);
+
+        for (int i = 0; i < count; i++)
+            segments[i] = new Segment<>(maxWeight == Long.MAX_VALUE ? maxWeight : Math.max(1, maxWeight / count));
+    }
+
+    public T get(Object key) {
+        Object k = normalize(key);
+        Segment<T> segment = segment(k);
+        Entry<T> entry;
+
+        synchronized (segment) {
+            entry = segment.map.get(k);
+
+            if (entry != null && isExpired(entry)) {
+                segment.remove(k);
+                evictions.increment();
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return entry.value;
+    }
+
+    public T get(Object key, Function<Object, T> loader) {
+        T value = get(key);
+
+        if (value != null)
+            return value;
+
+        long stamp = epoch.get();
+        value = loader.apply(key);
+
+        if (value != null)
+            putIfUnchanged(key, value, stamp);
+
+        return value;
+    }
+
+    public void put(Object key, T value) {
+        epoch.incrementAndGet();
+        store(normalize(key), value);
+    }
+
+    public void invalidate(Object key) {
+        Object k = normalize(key);
+        Segment<T> segment = segment(k);
+
+        epoch.incrementAndGet();
+
+        synchronized (segment) {
+            segment.remove(k);
+        }
+    }
+
+    public void invalidateAll() {
+        epoch.incrementAndGet();
+
+        for (Segment<T> segment : segments) {
+            synchronized (segment) {
+                segment.map.clear();
+                segment.weight = 0;
+            }
+        }
+    }
+
+    public long size() {
+        long size = 0;
+
+        for (Segment<T> segment : segments) {
+            synchronized (segment) {
+                size += segment.map.size();
+            }
+        }
+
+        return size;
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size());
+    }
+
+    long stamp() {
+        return epoch.get();
+    }
+
+    void putIfUnchanged(Object key, T value, long stamp) {
+        if (epoch.get() == stamp)
+            store(normalize(key), value);
+    }
+
+    private void store(Object key, T value) {
+        Segment<T> segment = segment(key);
+        long weight = Math.max(1, weigher.applyAsLong(value));
+
+        synchronized (segment) {
+            segment.remove(key);
+            segment.map.put(key, new Entry<>(value, weight, System.nanoTime()));
+            segment.weight += weight;
+
+            Iterator<Entry<T>> eldest = segment.map.values().iterator();
+
+            while (segment.weight > segment.maximumWeight && eldest.hasNext()) {
+                segment.weight -= eldest.next().weight;
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private boolean isExpired(Entry<T> entry) {
+        return expireAfterWriteNanos > 0 && System.nanoTime() - entry.written > expireAfterWriteNanos;
+    }
+
+    private Segment<T> segment(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        return segments[((h ^ (h >>> 16)) & 0x7fffffff) % segments.length];
+    }
+
+    static Object normalize(Object key) {
+        if (key instanceof Integer || key instanceof Short || key instanceof Byte)
+            return ((Number) key).longValue();
+
+        return key;
+    }
+
+    @Getter
+    @ToString
+    public static final class Stats {
+        private final long hits, misses, evictions, size;
+
+        Stats(long hits, long misses, long evictions, long size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+        }
+
+        public double getHitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 1D : (double) hits / requests;
+        }
+    }
+
+    private static final class Segment<T> {
+        private final LinkedHashMap<Object, Entry<T>> map = new LinkedHashMap<>(16, 0.75F, true);
+        private final long maximumWeight;
+        private long weight;
+
+        Segment(long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+        }
+
+        void remove(Object key) {
+            Entry<T> old = map.remove(key);
+
+            if (old != null)
+                weight -= old.weight;
+        }
+    }
+
+    private static final class Entry<T> {
+        private final T value;
+        private final long weight;
+        private final long written;
+
+        Entry(T value, long weight, long written) {
+            this.value = value;
+            this.weight = weight;
+            this.written = written;
+        }
+    }
+}
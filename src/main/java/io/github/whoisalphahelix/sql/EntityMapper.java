@@ -0,0 +1,185 @@
+package io.github.whoisalphahelix.sql;
+
+import lombok.Getter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+
+@Getter
+public final class EntityMapper<T> {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Class<T> type;
+    private final FieldMapping[] fields;
+    private final Map<String, FieldMapping> columns;
+    private final MethodHandle constructor;
+    private final boolean allArgsConstructor;
+
+    EntityMapper(Class<T> type, List<Field> columnFields, List<String> columnNames, List<ColumnCodec<Object>> codecs) {
+        this.type = type;
+        this.fields = new FieldMapping[columnFields.size()];
+        this.columns = new HashMap<>();
+
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = new FieldMapping(columnNames.get(i), columnFields.get(i), codecs.get(i));
+            columns.put(fields[i].getColumn(), fields[i]);
+        }
+
+        MethodHandle noArgs = findConstructor(type);
+        boolean settable = Arrays.stream(fields).allMatch(field -> field.setter != null);
+
+        if (noArgs != null && settable) {
+            this.constructor = noArgs;
+            this.allArgsConstructor = false;
+        } else {
+            this.constructor = findConstructor(type, Arrays.stream(fields).map(FieldMapping::getType).toArray(Class[]::new));
+            this.allArgsConstructor = true;
+        }
+    }
+
+    public boolean canRead() {
+        return constructor != null;
+    }
+
+    public T read(ResultSet rs) throws SQLException {
+        if (constructor == null)
+            throw new SQLException("No usable constructor to map rows into " + type.getName());
+
+        try {
+            if (allArgsConstructor) {
+                Object[] args = new Object[fields.length];
+
+                for (int i = 0; i < fields.length; i++)
+                    args[i] = fields[i].read(rs, i + 1);
+
+                return type.cast(constructor.invokeWithArguments(args));
+            }
+
+            Object entity = constructor.invoke();
+
+            for (int i = 0; i < fields.length; i++)
+                fields[i].setter.invokeExact(entity, fields[i].read(rs, i + 1));
+
+            return type.cast(entity);
+        } catch (SQLException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new SQLException("Unable to map row into " + type.getName(), t);
+        }
+    }
+
+    public int bind(PreparedStatement prep, int index, T entity) throws SQLException {
+        for (FieldMapping field : fields)
+            field.write(prep, index++, field.get(entity));
+
+        return index;
+    }
+
+    public Object[] values(T entity) throws SQLException {
+        Object[] values = new Object[fields.length];
+
+        for (int i = 0; i < fields.length; i++)
+            values[i] = fields[i].get(entity);
+
+        return values;
+    }
+
+    public FieldMapping column(String column) {
+        return columns.get(column);
+    }
+
+    private static MethodHandle findConstructor(Class<?> type, Class<?>... parameters) {
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor(parameters);
+            constructor.setAccessible(true);
+            return LOOKUP.unreflectConstructor(constructor);
+        } catch (NoSuchMethodException | IllegalAccessException | SecurityException e) {
+            return null;
+        }
+    }
+
+    @Getter
+    public static final class FieldMapping {
+        private final String column;
+        private final Class<?> type;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final ColumnCodec<Object> codec;
+
+        FieldMapping(String column, Field field, ColumnCodec<Object> codec) {
+            this.column = column;
+            this.type = field.getType();
+            this.codec = codec;
+
+            try {
+                this.getter = LOOKUP.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class));
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Unable to access column field " + field, e);
+            }
+
+            MethodHandle set;
+
+            try {
+                set = LOOKUP.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, Object.class));
+            } catch (IllegalAccessException e) {
+                set = null;
+            }
+
+            this.setter = set;
+        }
+
+        public Object get(Object entity) throws SQLException {
+            try {
+                return (Object) getter.invokeExact(entity);
+            } catch (Throwable t) {
+                throw new SQLException("Unable to read column field " + column, t);
+            }
+        }
+
+        public Object read(ResultSet rs, int index) throws SQLException {
+            Object value = codec.read(rs, index);
+
+            if (value == null && type.isPrimitive())
+                return defaultValue(type);
+            if (value instanceof String && (type == char.class || type == Character.class))
+                return ((String) value).isEmpty() ? (type.isPrimitive() ? defaultValue(type) : null) : ((String) value).charAt(0);
+
+            return value;
+        }
+
+        public void write(PreparedStatement prep, int index, Object value) throws SQLException {
+            if (value == null)
+                prep.setNull(index, Types.NULL);
+            else
+                codec.write(prep, index, value);
+        }
+    }
+
+    private static Object defaultValue(Class<?> primitive) {
+        if (primitive == boolean.class)
+            return false;
+        else if (primitive == char.class)
+            return '\0';
+        else if (primitive == long.class)
+            return 0L;
+        else if (primitive == double.class)
+            return 0D;
+        else if (primitive == float.class)
+            return 0F;
+        else if (primitive == short.class)
+            return (short) 0;
+        else if (primitive == byte.class)
+            return (byte) 0;
+
+        return 0;
+    }
+}
@@ -0,0 +1,45 @@
+package io.github.whoisalphahelix.sql;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+public class H2Dialect implements Dialect {
+
+    @Override
+    public String getName() {
+        return "h2";
+    }
+
+    @Override
+    public String columnType(Class<?> type) {
+        if (type.equals(double.class) || type.equals(Double.class))
+            return "DOUBLE PRECISION";
+        else if (type.equals(float.class) || type.equals(Float.class))
+            return "REAL";
+        else if (type.equals(boolean.class) || type.equals(Boolean.class))
+            return "BOOLEAN";
+        else if (type.equals(UUID.class))
+            return "VARCHAR(36)";
+
+        String generic = Dialect.super.columnType(type);
+
+        return generic.equals("JSON") ? "CLOB" : generic;
+    }
+
+    @Override
+    public String upsert(String table, String[] columns, String key) {
+        return "MERGE INTO " + quote(table) + " (" + Arrays.stream(columns).map(this::quote).collect(Collectors.joining(","))
+                + ") KEY (" + quote(key) + ") VALUES (" + Arrays.stream(columns).map(column -> "?").collect(Collectors.joining(",")) + ")";
+    }
+
+    @Override
+    public String insertIgnore(String table, String[] columns, String key) {
+        return null;
+    }
+
+    @Override
+    public int getMaxParameters() {
+        return 100000;
+    }
+}
@@ -0,0 +1,110 @@
+package io.github.whoisalphahelix.sql;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class HistogramMetrics implements SQLMetrics {
+
+    private final Map<String, Map<String, OperationMetrics>> operations = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, LongAdder>> encoded = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordOperation(String table, String operation, long nanos, boolean success) {
+        OperationMetrics metrics = operation(table, operation);
+
+        metrics.latency.record(nanos);
+        (success ? metrics.successes : metrics.failures).increment();
+    }
+
+    @Override
+    public void recordCheckout(String table, String operation, long nanos) {
+        operation(table, operation).checkout.record(nanos);
+    }
+
+    @Override
+    public void recordRows(String table, String operation, long read, long written) {
+        OperationMetrics metrics = operation(table, operation);
+
+        metrics.rowsRead.add(read);
+        metrics.rowsWritten.add(written);
+    }
+
+    @Override
+    public void recordEncoded(String table, String column, long bytes) {
+        encoded.computeIfAbsent(table, t -> new ConcurrentHashMap<>())
+                .computeIfAbsent(column, c -> new LongAdder())
+                .add(bytes);
+    }
+
+    public OperationMetrics get(String table, String operation) {
+        return operations.getOrDefault(table, Collections.emptyMap()).get(operation);
+    }
+
+    public Map<String, Map<String, OperationMetrics>> getOperations() {
+        return Collections.unmodifiableMap(operations);
+    }
+
+    public long getEncodedBytes(String table, String column) {
+        LongAdder bytes = encoded.getOrDefault(table, Collections.emptyMap()).get(column);
+
+        return bytes == null ? 0 : bytes.sum();
+    }
+
+    public long getEncodedBytes(String table) {
+        return encoded.getOrDefault(table, Collections.emptyMap()).values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    public void reset() {
+        operations.clear();
+        encoded.clear();
+    }
+
+    private OperationMetrics operation(String table, String operation) {
+        Map<String, OperationMetrics> byOperation = operations.get(table);
+
+        if (byOperation == null)
+            byOperation = operations.computeIfAbsent(table, t -> new ConcurrentHashMap<>());
+
+        OperationMetrics metrics = byOperation.get(operation);
+
+        return metrics != null ? metrics : byOperation.computeIfAbsent(operation, o -> new OperationMetrics());
+    }
+
+    @Getter
+    public static final class OperationMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram checkout = new LatencyHistogram();
+        @Getter(AccessLevel.NONE)
+        private final LongAdder successes = new LongAdder(), failures = new LongAdder();
+        @Getter(AccessLevel.NONE)
+        private final LongAdder rowsRead = new LongAdder(), rowsWritten = new LongAdder();
+
+        public long getSuccesses() {
+            return successes.sum();
+        }
+
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        public long getRowsRead() {
+            return rowsRead.sum();
+        }
+
+        public long getRowsWritten() {
+            return rowsWritten.sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("OperationMetrics(count=%d, failures=%d, p50=%.3fms, p99=%.3fms, max=%.3fms, rowsRead=%d, rowsWritten=%d)",
+                    latency.getCount(), getFailures(), latency.getPercentileNanos(50) / 1e6, latency.getPercentileNanos(99) / 1e6,
+                    latency.getMaxNanos() / 1e6, getRowsRead(), getRowsWritten());
+        }
+    }
+}
@@ -1,11 +1,32 @@
 package io.github.whoisalphahelix.sql;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class JsonHelper {
 
     private static final JsonParser PARSER = new JsonParser();
-    private static final Gson GSON = new GsonBuilder().create();
+    private static final Gson GSON = new GsonBuilder().registerTypeAdapter(Instant.class, new InstantAdapter().nullSafe()).create();
+    private static final String BODY = "body";
+    private static final String TYPE = "type";
+    private static final String TYPE_MARKER = "\\\"type\\\":\\\"";
+    private static final String ENVELOPE_END = "\\\"}";
+    private static final Map<String, Class<?>> CLASSES = new ConcurrentHashMap<>();
+    private static final ClassValue<TypeAdapter<?>> ADAPTERS = new ClassValue<TypeAdapter<?>>() {
+        @Override
+        protected TypeAdapter<?> computeValue(Class<?> type) {
+            return GSON.getAdapter(type);
+        }
+    };
 
     public static Gson gson() {
         return GSON;
@@ -17,71 +38,338 @@ public class JsonHelper {
         if (TypeHelper.isPrimitive(obj.getClass()))
             return gson.toJsonTree(obj);
 
-        head.add("body", gson.toJsonTree(obj));
-        head.addProperty("type", obj.getClass().getName());
+        head.add(BODY, gson.toJsonTree(obj));
+        head.addProperty(TYPE, obj.getClass().getName());
         return head;
     }
 
     public String toJsonTreeString(Gson gson, Object obj) {
-        JsonObject head = new JsonObject();
+        StringBuilder out = new StringBuilder().append('"');
 
-        if (TypeHelper.isPrimitive(obj.getClass()))
-            return gson.toJsonTree(obj.toString()).toString();
+        write(gson, obj, out, false);
+        return out.append('"').toString();
+    }
+
+    public String toEscapedString(Gson gson, Object obj) {
+        if (obj == null)
+            return null;
 
-        head.add("body", gson.toJsonTree(obj));
-        head.addProperty("type", obj.getClass().getName());
-        return "\"" + head + "\"";
+        StringBuilder out = new StringBuilder();
+
+        write(gson, obj, out, true);
+        return out.toString();
     }
 
     public Object fromJsonTree(Gson gson, String json) {
-        if (!json.contains("body") || !json.contains("type")) {
-            JsonPrimitive primitive = (JsonPrimitive) PARSER.parse(unescape(json));
-            if (primitive.isBoolean())
-                return primitive.getAsBoolean();
-            else if (primitive.isNumber())
-                return findNumberType(primitive.getAsNumber());
-            else if (primitive.isString())
-                return primitive.getAsString();
+        if (!json.startsWith("{"))
+            return readPrimitive(json);
+
+        int marker = json.lastIndexOf(TYPE_MARKER);
+
+        if (marker < 0 || !json.endsWith(ENVELOPE_END))
+            return readPrimitive(json);
+
+        Class<?> type = resolve(json.substring(marker + TYPE_MARKER.length(), json.length() - ENVELOPE_END.length()));
+
+        if (type == null)
+            return null;
+
+        try (JsonReader reader = new JsonReader(new UnescapingReader(json, false))) {
+            reader.setLenient(true);
+            reader.beginObject();
+
+            if (!BODY.equals(reader.nextName()))
+                return readTree(gson, json);
+
+            return adapter(gson, type).read(reader);
+        } catch (IOException | IllegalStateException e) {
+            throw new JsonSyntaxException(e);
         }
+    }
+
+    private void write(Gson gson, Object obj, StringBuilder out, boolean escapeQuotes) {
+        if (TypeHelper.isPrimitive(obj.getClass())) {
+            writeString(out, obj.toString(), escapeQuotes);
+            return;
+        }
+
         try {
-            JsonObject obj = (JsonObject) PARSER.parse(unescape(json));
-            return gson.fromJson(obj.get("body"), Class.forName(obj.get("type").getAsString()));
+            JsonWriter writer = new JsonWriter(escapeQuotes ? new QuoteEscapingWriter(out) : new StringBuilderWriter(out));
+
+            writer.setSerializeNulls(false);
+            writer.beginObject();
+            writer.name(BODY);
+            writer(gson, obj.getClass()).write(writer, obj);
+            writer.name(TYPE).value(obj.getClass().getName());
+            writer.endObject();
+            writer.flush();
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
+    private Object readPrimitive(String json) {
+        try (JsonReader reader = new JsonReader(new UnescapingReader(json, false))) {
+            reader.setLenient(true);
+
+            JsonToken token = reader.peek();
+            Object value = null;
+
+            if (token == JsonToken.BOOLEAN)
+                value = reader.nextBoolean();
+            else if (token == JsonToken.NUMBER)
+                value = findNumberType(reader.nextString());
+
+            if (value != null && reader.peek() == JsonToken.END_DOCUMENT)
+                return value;
+        } catch (IOException | IllegalStateException e) {
+            // not a bare literal, read it as string content below
+        }
+
+        try (JsonReader reader = new JsonReader(new UnescapingReader(json, true))) {
+            reader.setLenient(true);
+            return reader.nextString();
+        } catch (IOException | IllegalStateException e) {
+            return unescape(json);
+        }
+    }
+
+    private Object readTree(Gson gson, String json) {
+        JsonObject obj = (JsonObject) PARSER.parse(unescape(json));
+        Class<?> type = resolve(obj.get(TYPE).getAsString());
+
+        return type == null ? null : gson.fromJson(obj.get(BODY), type);
+    }
+
+    private static TypeAdapter<?> adapter(Gson gson, Class<?> type) {
+        return gson == GSON ? ADAPTERS.get(type) : gson.getAdapter(type);
+    }
+
+    @SuppressWarnings("unchecked") // only used with the runtime class of the value being written
+    private static TypeAdapter<Object> writer(Gson gson, Class<?> type) {
+        return (TypeAdapter<Object>) adapter(gson, type);
+    }
+
+    private static Class<?> resolve(String name) {
+        Class<?> type = CLASSES.get(name);
+
+        if (type != null)
+            return type;
+
+        try {
+            type = Class.forName(name);
         } catch (ClassNotFoundException e) {
             e.printStackTrace();
             return null;
         }
+
+        CLASSES.put(name, type);
+        return type;
     }
 
-    private String unescape(String json) {
+    private static void writeString(StringBuilder out, String value, boolean escapeQuotes) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '"':
+                    out.append(escapeQuotes ? "\\\\\"" : "\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\b':
+                    out.append("\\b");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\f':
+                    out.append("\\f");
+                    break;
+                case '\u2028':
+                    out.append("\\u2028");
+                    break;
+                case '\u2029':
+                    out.append("\\u2029");
+                    break;
+                default:
+                    if (c < 0x20)
+                        out.append(String.format("\\u%04x", (int) c));
+                    else
+                        out.append(c);
+            }
+        }
+    }
+
+    private static String unescape(String json) {
         return json.replace("\\\"", "\"");
     }
 
-    private Object findNumberType(Number num) {
-        String a = num.toString();
+    private static Object findNumberType(String number) {
+        if (isInteger(number)) {
+            long value = Long.parseLong(number);
+
+            if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE)
+                return (int) value;
+        }
+
         try {
-            return Integer.parseInt(a);
-        } catch (NumberFormatException numberFormatException) {
-            try {
-                return Double.parseDouble(a);
-            } catch (NumberFormatException numberFormatException2) {
-                try {
-                    return Float.parseFloat(a);
-                } catch (NumberFormatException numberFormatException3) {
-                    try {
-                        return Long.parseLong(a);
-                    } catch (NumberFormatException numberFormatException4) {
-                        try {
-                            return Byte.parseByte(a);
-                        } catch (NumberFormatException numberFormatException5) {
-                            try {
-                                return Short.parseShort(a);
-                            } catch (NumberFormatException numberFormatException6) {
-                                return null;
-                            }
-                        }
-                    }
+            return Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean isInteger(String number) {
+        int start = number.startsWith("-") ? 1 : 0;
+
+        if (number.length() == start || number.length() - start > 10)
+            return false;
+
+        for (int i = start; i < number.length(); i++)
+            if (number.charAt(i) < '0' || number.charAt(i) > '9')
+                return false;
+
+        return true;
+    }
+
+    // Same {"seconds":..,"nanos":..} shape reflective Gson produced, without needing access into java.base.
+    private static class InstantAdapter extends TypeAdapter<Instant> {
+        @Override
+        public void write(JsonWriter out, Instant value) throws IOException {
+            out.beginObject();
+            out.name("seconds").value(value.getEpochSecond());
+            out.name("nanos").value(value.getNano());
+            out.endObject();
+        }
+
+        @Override
+        public Instant read(JsonReader in) throws IOException {
+            long seconds = 0;
+            int nanos = 0;
+
+            in.beginObject();
+
+            while (in.hasNext()) {
+                String name = in.nextName();
+
+                if (name.equals("seconds"))
+                    seconds = in.nextLong();
+                else if (name.equals("nanos"))
+                    nanos = in.nextInt();
+                else
+                    in.skipValue();
+            }
+
+            in.endObject();
+            return Instant.ofEpochSecond(seconds, nanos);
+        }
+    }
+
+    private static class StringBuilderWriter extends Writer {
+        final StringBuilder out;
+
+        StringBuilderWriter(StringBuilder out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int c) {
+            out.append((char) c);
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            out.append(chars, offset, length);
+        }
+
+        @Override
+        public void write(String str, int offset, int length) {
+            out.append(str, offset, offset + length);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class QuoteEscapingWriter extends StringBuilderWriter {
+
+        QuoteEscapingWriter(StringBuilder out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int c) {
+            if (c == '"')
+                out.append('\\');
+
+            out.append((char) c);
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            for (int i = offset; i < offset + length; i++)
+                write(chars[i]);
+        }
+
+        @Override
+        public void write(String str, int offset, int length) {
+            for (int i = offset; i < offset + length; i++)
+                write(str.charAt(i));
+        }
+    }
+
+    private static final class UnescapingReader extends Reader {
+        private final String json;
+        private final int end;
+        private int position;
+
+        UnescapingReader(String json, boolean quoted) {
+            this.json = json;
+            this.position = quoted ? -1 : 0;
+            this.end = quoted ? json.length() + 1 : json.length();
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position >= end)
+                return -1;
+
+            int count = 0;
+
+            while (count < length && position < end) {
+                char c;
+
+                if (position < 0 || position == json.length()) {
+                    c = '"';
+                    position++;
+                } else {
+                    c = json.charAt(position++);
+
+                    if (c == '\\' && position < json.length() && json.charAt(position) == '"')
+                        c = json.charAt(position++);
                 }
+
+                buffer[offset + count++] = c;
             }
+
+            return count;
+        }
+
+        @Override
+        public void close() {
         }
     }
 }
@@ -0,0 +1,89 @@
+package io.github.whoisalphahelix.sql;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+public class MySQLDialect implements Dialect {
+
+    private static final Map<String, String> PROPERTIES;
+
+    static {
+        Map<String, String> properties = new HashMap<>();
+
+        properties.put("rewriteBatchedStatements", "true");
+        properties.put("useServerPrepStmts", "true");
+        properties.put("cacheServerConfiguration", "true");
+
+        PROPERTIES = Collections.unmodifiableMap(properties);
+    }
+
+    @Override
+    public String getName() {
+        return "mysql";
+    }
+
+    @Override
+    public String columnType(Class<?> type) {
+        if (type.equals(int.class) || type.equals(Integer.class))
+            return "INT";
+        else if (type.equals(boolean.class) || type.equals(Boolean.class))
+            return "BOOLEAN";
+        else if (type.equals(String.class) || type.isEnum())
+            return "VARCHAR(255)";
+        else if (type.equals(UUID.class))
+            return "CHAR(36)";
+        else if (type.equals(byte[].class))
+            return "LONGBLOB";
+
+        String generic = Dialect.super.columnType(type);
+
+        return generic.equals("JSON") ? "LONGTEXT" : generic;
+    }
+
+    @Override
+    public char getQuoteCharacter() {
+        return '`';
+    }
+
+    @Override
+    public String upsert(String table, String[] columns, String key) {
+        String updates = Arrays.stream(columns).filter(column -> !column.equals(key)).map(this::quote)
+                .map(column -> column + " = VALUES(" + column + ")").collect(Collectors.joining(","));
+
+        return insert(table, columns) + " ON DUPLICATE KEY UPDATE " + (updates.isEmpty() ? quote(key) + " = " + quote(key) : updates);
+    }
+
+    @Override
+    public String insertIgnore(String table, String[] columns, String key) {
+        return insert(table, columns).replaceFirst("INSERT INTO", "INSERT IGNORE INTO");
+    }
+
+    @Override
+    public String createIndex(String table, String name, String[] columns, boolean unique) {
+        return Dialect.super.createIndex(table, name, columns, unique).replaceFirst(" IF NOT EXISTS", "");
+    }
+
+    @Override
+    public boolean supportsCreateIndexIfNotExists() {
+        return false;
+    }
+
+    @Override
+    public String identityColumnType() {
+        return "BIGINT AUTO_INCREMENT PRIMARY KEY";
+    }
+
+    @Override
+    public Map<String, String> getDataSourceProperties() {
+        return PROPERTIES;
+    }
+
+    @Override
+    public int getMaxParameters() {
+        return 65535;
+    }
+}
@@ -0,0 +1,36 @@
+package io.github.whoisalphahelix.sql;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.List;
+
+@Getter
+@ToString
+public class Page<T> {
+
+    private final List<T> items;
+    private final Object nextKey;
+    @Getter(AccessLevel.NONE)
+    private final boolean hasNext;
+
+    Page(List<T> items, Object nextKey, boolean hasNext) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextKey = nextKey;
+        this.hasNext = hasNext;
+    }
+
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public int size() {
+        return items.size();
+    }
+}
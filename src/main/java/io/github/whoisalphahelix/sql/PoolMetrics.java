@@ -0,0 +1,149 @@
+package io.github.whoisalphahelix.sql;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class PoolMetrics implements MetricsTrackerFactory {
+
+    private final MetricsTrackerFactory delegate;
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder usageMillis = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private volatile HikariDataSource dataSource;
+    private volatile PoolStats poolStats;
+
+    PoolMetrics(MetricsTrackerFactory delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+
+        IMetricsTracker downstream = delegate == null ? null : delegate.create(poolName, poolStats);
+
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                created.increment();
+
+                if (downstream != null)
+                    downstream.recordConnectionCreatedMillis(connectionCreatedMillis);
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquired.increment();
+                acquireNanos.add(elapsedAcquiredNanos);
+                maxAcquireNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+
+                if (downstream != null)
+                    downstream.recordConnectionAcquiredNanos(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageMillis.add(elapsedBorrowedMillis);
+
+                if (downstream != null)
+                    downstream.recordConnectionUsageMillis(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+
+                if (downstream != null)
+                    downstream.recordConnectionTimeout();
+            }
+
+            @Override
+            public void close() {
+                if (downstream != null)
+                    downstream.close();
+            }
+        };
+    }
+
+    void bind(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public int getActiveConnections() {
+        HikariPoolMXBean pool = pool();
+
+        if (pool != null)
+            return pool.getActiveConnections();
+
+        return poolStats == null ? 0 : poolStats.getActiveConnections();
+    }
+
+    public int getIdleConnections() {
+        HikariPoolMXBean pool = pool();
+
+        if (pool != null)
+            return pool.getIdleConnections();
+
+        return poolStats == null ? 0 : poolStats.getIdleConnections();
+    }
+
+    public int getTotalConnections() {
+        HikariPoolMXBean pool = pool();
+
+        if (pool != null)
+            return pool.getTotalConnections();
+
+        return poolStats == null ? 0 : poolStats.getTotalConnections();
+    }
+
+    public int getPendingThreads() {
+        HikariPoolMXBean pool = pool();
+
+        if (pool != null)
+            return pool.getThreadsAwaitingConnection();
+
+        return poolStats == null ? 0 : poolStats.getPendingThreads();
+    }
+
+    public long getAcquireCount() {
+        return acquired.sum();
+    }
+
+    public double getAverageAcquireMillis() {
+        long count = acquired.sum();
+
+        return count == 0 ? 0D : (double) acquireNanos.sum() / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxAcquireMillis() {
+        return (double) maxAcquireNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public long getConnectionsCreated() {
+        return created.sum();
+    }
+
+    public long getTotalUsageMillis() {
+        return usageMillis.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    private HikariPoolMXBean pool() {
+        HikariDataSource dataSource = this.dataSource;
+
+        return dataSource == null || dataSource.isClosed() ? null : dataSource.getHikariPoolMXBean();
+    }
+}
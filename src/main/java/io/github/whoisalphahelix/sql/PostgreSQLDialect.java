@@ -0,0 +1,50 @@
+package io.github.whoisalphahelix.sql;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+
+public class PostgreSQLDialect implements Dialect {
+
+    private static final Map<String, String> PROPERTIES = Collections.singletonMap("reWriteBatchedInserts", "true");
+
+    @Override
+    public String getName() {
+        return "postgresql";
+    }
+
+    @Override
+    public String columnType(Class<?> type) {
+        if (type.equals(double.class) || type.equals(Double.class))
+            return "DOUBLE PRECISION";
+        else if (type.equals(float.class) || type.equals(Float.class))
+            return "REAL";
+        else if (type.equals(boolean.class) || type.equals(Boolean.class))
+            return "BOOLEAN";
+        else if (type.equals(byte.class) || type.equals(Byte.class))
+            return "SMALLINT";
+        else if (type.equals(UUID.class))
+            return "VARCHAR(36)";
+        else if (type.equals(byte[].class))
+            return "BYTEA";
+
+        String generic = Dialect.super.columnType(type);
+
+        return generic.equals("JSON") ? "TEXT" : generic;
+    }
+
+    @Override
+    public String identityColumnType() {
+        return "BIGSERIAL PRIMARY KEY";
+    }
+
+    @Override
+    public Map<String, String> getDataSourceProperties() {
+        return PROPERTIES;
+    }
+
+    @Override
+    public int getMaxParameters() {
+        return 32767;
+    }
+}
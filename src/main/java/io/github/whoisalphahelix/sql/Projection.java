@@ -0,0 +1,315 @@
+package io.github.whoisalphahelix.sql;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+@Getter
+public class Projection {
+
+    private final List<String> columns;
+    private final int rowCount;
+    @Getter(AccessLevel.NONE)
+    private final Map<String, ColumnData> data;
+
+    private Projection(List<String> columns, int rowCount, Map<String, ColumnData> data) {
+        this.columns = Collections.unmodifiableList(columns);
+        this.rowCount = rowCount;
+        this.data = data;
+    }
+
+    static Projection empty(String[] columns, ColumnCodec<Object>[] codecs) {
+        Map<String, ColumnData> byName = new LinkedHashMap<>();
+
+        for (int i = 0; i < columns.length; i++)
+            byName.put(columns[i], ColumnData.of(codecs[i], 0));
+
+        return new Projection(Arrays.asList(columns), 0, byName);
+    }
+
+    static Projection read(ResultSet rs, String[] columns, ColumnCodec<Object>[] codecs, int capacity) throws SQLException {
+        ColumnData[] data = new ColumnData[columns.length];
+
+        for (int i = 0; i < columns.length; i++)
+            data[i] = ColumnData.of(codecs[i], Math.max(16, capacity));
+
+        int rows = 0;
+
+        while (rs.next()) {
+            for (int i = 0; i < data.length; i++)
+                data[i].read(rs, i + 1, rows);
+
+            rows++;
+        }
+
+        Map<String, ColumnData> byName = new LinkedHashMap<>();
+
+        for (int i = 0; i < columns.length; i++)
+            byName.put(columns[i], data[i].trim(rows));
+
+        return new Projection(Arrays.asList(columns), rows, byName);
+    }
+
+    public boolean isEmpty() {
+        return rowCount == 0;
+    }
+
+    public Class<?> getColumnType(String column) {
+        return column(column).type();
+    }
+
+    public int[] getInts(String column) {
+        ColumnData data = column(column);
+
+        if (data instanceof IntColumn)
+            return ((IntColumn) data).values.clone();
+        if (data instanceof LongColumn)
+            return Arrays.stream(((LongColumn) data).values).mapToInt(Math::toIntExact).toArray();
+
+        throw new IllegalArgumentException("Column " + column + " is not an integer column");
+    }
+
+    public long[] getLongs(String column) {
+        ColumnData data = column(column);
+
+        if (data instanceof LongColumn)
+            return ((LongColumn) data).values.clone();
+        if (data instanceof IntColumn)
+            return Arrays.stream(((IntColumn) data).values).asLongStream().toArray();
+
+        throw new IllegalArgumentException("Column " + column + " is not an integer column");
+    }
+
+    public double[] getDoubles(String column) {
+        ColumnData data = column(column);
+
+        if (data instanceof DoubleColumn)
+            return ((DoubleColumn) data).values.clone();
+        if (data instanceof LongColumn)
+            return Arrays.stream(((LongColumn) data).values).asDoubleStream().toArray();
+        if (data instanceof IntColumn)
+            return Arrays.stream(((IntColumn) data).values).asDoubleStream().toArray();
+
+        throw new IllegalArgumentException("Column " + column + " is not a numeric column");
+    }
+
+    public boolean isNull(String column, int row) {
+        return column(column).isNull(row);
+    }
+
+    public Object get(String column, int row) {
+        ColumnData data = column(column);
+
+        return data.isNull(row) ? null : data.get(row);
+    }
+
+    @SuppressWarnings("unchecked") // callers pick C to match the column's codec
+    public <C> List<C> getValues(String column) {
+        ColumnData data = column(column);
+        List<C> values = new ArrayList<>(rowCount);
+
+        for (int row = 0; row < rowCount; row++)
+            values.add((C) (data.isNull(row) ? null : data.get(row)));
+
+        return values;
+    }
+
+    private ColumnData column(String column) {
+        ColumnData data = this.data.get(column);
+
+        if (data == null)
+            throw new IllegalArgumentException("Column " + column + " is not part of this projection");
+
+        return data;
+    }
+
+    private abstract static class ColumnData {
+        BitSet nulls;
+
+        static ColumnData of(ColumnCodec<Object> codec, int capacity) {
+            Class<?> type = codec.getType();
+
+            if (type == Integer.class || type == Short.class || type == Byte.class)
+                return new IntColumn(type, capacity);
+            if (type == Long.class)
+                return new LongColumn(capacity);
+            if (type == Double.class || type == Float.class)
+                return new DoubleColumn(type, capacity);
+
+            return new ObjectColumn(codec, capacity);
+        }
+
+        void markNull(int row) {
+            if (nulls == null)
+                nulls = new BitSet();
+
+            nulls.set(row);
+        }
+
+        boolean isNull(int row) {
+            return nulls != null && nulls.get(row);
+        }
+
+        abstract Class<?> type();
+
+        abstract void read(ResultSet rs, int index, int row) throws SQLException;
+
+        abstract Object get(int row);
+
+        abstract ColumnData trim(int rows);
+    }
+
+    private static final class IntColumn extends ColumnData {
+        private final Class<?> boxed;
+        int[] values;
+
+        IntColumn(Class<?> boxed, int capacity) {
+            this.boxed = boxed;
+            this.values = new int[capacity];
+        }
+
+        @Override
+        Class<?> type() {
+            return int.class;
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            if (row == values.length)
+                values = Arrays.copyOf(values, row * 2);
+
+            values[row] = rs.getInt(index);
+
+            if (rs.wasNull())
+                markNull(row);
+        }
+
+        @Override
+        Object get(int row) {
+            if (boxed == Short.class)
+                return (short) values[row];
+            if (boxed == Byte.class)
+                return (byte) values[row];
+
+            return values[row];
+        }
+
+        @Override
+        ColumnData trim(int rows) {
+            values = Arrays.copyOf(values, rows);
+            return this;
+        }
+    }
+
+    private static final class LongColumn extends ColumnData {
+        long[] values;
+
+        LongColumn(int capacity) {
+            this.values = new long[capacity];
+        }
+
+        @Override
+        Class<?> type() {
+            return long.class;
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            if (row == values.length)
+                values = Arrays.copyOf(values, row * 2);
+
+            values[row] = rs.getLong(index);
+
+            if (rs.wasNull())
+                markNull(row);
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        ColumnData trim(int rows) {
+            values = Arrays.copyOf(values, rows);
+            return this;
+        }
+    }
+
+    private static final class DoubleColumn extends ColumnData {
+        private final Class<?> boxed;
+        double[] values;
+
+        DoubleColumn(Class<?> boxed, int capacity) {
+            this.boxed = boxed;
+            this.values = new double[capacity];
+        }
+
+        @Override
+        Class<?> type() {
+            return double.class;
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            if (row == values.length)
+                values = Arrays.copyOf(values, row * 2);
+
+            values[row] = rs.getDouble(index);
+
+            if (rs.wasNull())
+                markNull(row);
+        }
+
+        @Override
+        Object get(int row) {
+            return boxed == Float.class ? (Object) (float) values[row] : (Object) values[row];
+        }
+
+        @Override
+        ColumnData trim(int rows) {
+            values = Arrays.copyOf(values, rows);
+            return this;
+        }
+    }
+
+    private static final class ObjectColumn extends ColumnData {
+        private final ColumnCodec<Object> codec;
+        Object[] values;
+
+        ObjectColumn(ColumnCodec<Object> codec, int capacity) {
+            this.codec = codec;
+            this.values = new Object[capacity];
+        }
+
+        @Override
+        Class<?> type() {
+            return codec.getType();
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            if (row == values.length)
+                values = Arrays.copyOf(values, row * 2);
+
+            values[row] = codec.read(rs, index);
+
+            if (values[row] == null)
+                markNull(row);
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        ColumnData trim(int rows) {
+            values = Arrays.copyOf(values, rows);
+            return this;
+        }
+    }
+}
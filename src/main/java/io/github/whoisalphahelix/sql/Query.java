@@ -0,0 +1,281 @@
+package io.github.whoisalphahelix.sql;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class Query<T> {
+
+    private static final String QUERY = "QUERY";
+    private static final String SELECT = "SELECT %s FROM %s";
+    private static final String WHERE = " WHERE ";
+    private static final String ORDER_BY = " ORDER BY ";
+    private static final String COUNT = "COUNT(*)";
+    private static final String EXISTS = "1";
+    private static final String AGGREGATE = "%s(%s)";
+
+    private final SQLTable<T> table;
+    private final List<Condition> conditions = new ArrayList<>();
+    private final List<String> orderColumns = new ArrayList<>();
+    private final List<Boolean> descending = new ArrayList<>();
+    private int limit = -1;
+    private int offset;
+
+    Query(SQLTable<T> table) {
+        this.table = table;
+    }
+
+    public Query<T> where(Condition condition) {
+        conditions.add(condition);
+        return this;
+    }
+
+    public Query<T> where(String column, Object value) {
+        return where(Condition.eq(column, value));
+    }
+
+    public Query<T> or(Condition... conditions) {
+        return where(Condition.or(conditions));
+    }
+
+    public Query<T> orderBy(String column) {
+        orderColumns.add(column);
+        descending.add(false);
+        return this;
+    }
+
+    public Query<T> orderByDescending(String column) {
+        orderColumns.add(column);
+        descending.add(true);
+        return this;
+    }
+
+    public Query<T> limit(int limit) {
+        if (limit < 0)
+            throw new IllegalArgumentException("Limit must not be negative, got " + limit);
+
+        this.limit = limit;
+        return this;
+    }
+
+    public Query<T> offset(int offset) {
+        if (offset < 0)
+            throw new IllegalArgumentException("Offset must not be negative, got " + offset);
+
+        this.offset = offset;
+        return this;
+    }
+
+    public List<T> list() {
+        if (!table.getSql().getDataSource().isRunning())
+            return new ArrayList<>();
+
+        return table.executeQuery("query", compile(null, limit), prep -> bind(prep, true, limit), rs -> {
+            List<T> rows = new ArrayList<>();
+
+            while (rs.next())
+                rows.add(table.readEntity(rs));
+
+            return rows;
+        }, new ArrayList<>());
+    }
+
+    public Stream<T> stream() {
+        return table.streamQuery("query", compile(null, limit), prep -> bind(prep, true, limit), table::readEntity);
+    }
+
+    public Optional<T> first() {
+        if (!table.getSql().getDataSource().isRunning())
+            return Optional.empty();
+
+        return table.executeQuery("query", compile(null, 1), prep -> bind(prep, true, 1),
+                rs -> rs.next() ? Optional.ofNullable(table.readEntity(rs)) : Optional.<T>empty(), Optional.empty());
+    }
+
+    public Projection project(String... columns) {
+        Projection empty = table.emptyProjection(columns);
+
+        if (!table.getSql().getDataSource().isRunning())
+            return empty;
+
+        return table.executeQuery("query", compile(columns, limit), prep -> bind(prep, true, limit),
+                rs -> table.readProjection(rs, columns), empty);
+    }
+
+    public <C> List<C> values(String column) {
+        return project(column).getValues(column);
+    }
+
+    public long count() {
+        if (!table.getSql().getDataSource().isRunning())
+            return 0;
+
+        return table.executeQuery("count", compile("COUNT", COUNT, Collections.emptyList(), false, -1),
+                prep -> bind(prep, false, -1), rs -> rs.next() ? rs.getLong(1) : 0L, 0L);
+    }
+
+    public boolean exists() {
+        if (!table.getSql().getDataSource().isRunning())
+            return false;
+
+        return table.executeQuery("exists", compile("EXISTS", EXISTS, Collections.emptyList(), false, 1),
+                prep -> bind(prep, false, 1), ResultSet::next, false);
+    }
+
+    public <C> C min(String column) {
+        return aggregate("MIN", column, rs -> table.readValue(rs, 1, column));
+    }
+
+    public <C> C max(String column) {
+        return aggregate("MAX", column, rs -> table.readValue(rs, 1, column));
+    }
+
+    public Number sum(String column) {
+        ColumnCodec<Object> codec = table.getCodecs().get(column);
+        Class<?> type = codec == null ? null : codec.getType();
+        boolean floating = type == Double.class || type == Float.class;
+        Number sum = aggregate("SUM", column, rs -> normalize(rs.getObject(1), floating));
+
+        return sum == null ? (floating ? (Number) 0D : (Number) 0L) : sum;
+    }
+
+    public Double avg(String column) {
+        return aggregate("AVG", column, rs -> {
+            double avg = rs.getDouble(1);
+
+            return rs.wasNull() ? null : avg;
+        });
+    }
+
+    private <R> R aggregate(String function, String column, SQLFunction<ResultSet, R> reader) {
+        if (!table.getSql().getDataSource().isRunning())
+            return null;
+
+        String query = compile(function + ":" + column, String.format(AGGREGATE, function, table.getDialect().quote(column)),
+                Collections.singletonList(column), false, -1);
+
+        return table.executeQuery(function.toLowerCase(Locale.ROOT), query, prep -> bind(prep, false, -1),
+                rs -> rs.next() ? reader.apply(rs) : null, null);
+    }
+
+    private static Number normalize(Object value, boolean floating) {
+        if (floating && value instanceof Number)
+            return ((Number) value).doubleValue();
+        if (value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) value;
+
+            try {
+                return decimal.longValueExact();
+            } catch (ArithmeticException e) {
+                return decimal.doubleValue();
+            }
+        }
+        if (value instanceof BigInteger)
+            return ((BigInteger) value).doubleValue();
+        if (value instanceof Float || value instanceof Double)
+            return ((Number) value).doubleValue();
+        if (value instanceof Number)
+            return ((Number) value).longValue();
+
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return compile(null, limit);
+    }
+
+    String compile(String[] columns, int limit) {
+        if (columns == null)
+            return compile("*", table.getTableInfo(), Collections.emptyList(), true, limit);
+
+        return compile("P:" + String.join(",", columns), Arrays.stream(columns).map(table.getDialect()::quote).collect(Collectors.joining(",")),
+                Arrays.asList(columns), true, limit);
+    }
+
+    private String compile(String selectKey, String select, Collection<String> columns, boolean ordered, int limit) {
+        StringBuilder key = new StringBuilder(selectKey).append('|');
+
+        for (Condition condition : conditions) {
+            condition.shape(key);
+            key.append(';');
+        }
+
+        key.append('|');
+
+        if (ordered) {
+            for (int i = 0; i < orderColumns.size(); i++)
+                key.append(orderColumns.get(i)).append(descending.get(i) ? '-' : '+');
+
+            key.append('|').append(offset > 0 ? 'o' : '-');
+        }
+
+        key.append(limit >= 0 ? 'l' : '-');
+
+        return table.template(QUERY, () -> render(select, columns, ordered, limit), key.toString());
+    }
+
+    void bind(PreparedStatement prep, boolean ordered, int limit) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+
+        for (Condition condition : conditions)
+            condition.parameters(columns, values);
+
+        int index = 1;
+
+        for (int i = 0; i < values.size(); i++, index++) {
+            if (columns.get(i) == null)
+                prep.setString(index, String.valueOf(values.get(i)));
+            else
+                table.bind(prep, index, columns.get(i), values.get(i));
+        }
+
+        int offset = ordered ? this.offset : 0;
+
+        if (limit >= 0 || offset > 0)
+            prep.setInt(index++, limit >= 0 ? limit : Integer.MAX_VALUE);
+        if (offset > 0)
+            prep.setInt(index, offset);
+    }
+
+    private String render(String select, Collection<String> columns, boolean ordered, int limit) {
+        Set<String> used = new LinkedHashSet<>(columns);
+
+        if (ordered)
+            used.addAll(orderColumns);
+
+        for (Condition condition : conditions)
+            condition.columns(used);
+
+        List<String> known = Arrays.asList(table.getColumnNames());
+
+        for (String column : used)
+            if (!known.contains(column))
+                throw new IllegalArgumentException("Unknown column " + column + " in " + table.getTableName());
+
+        Dialect dialect = table.getDialect();
+        StringBuilder sql = new StringBuilder(String.format(SELECT, select, table.getQuotedName()));
+
+        for (int i = 0; i < conditions.size(); i++) {
+            sql.append(i == 0 ? WHERE : " AND ");
+            conditions.get(i).render(sql, dialect);
+        }
+
+        if (!ordered)
+            return limit >= 0 ? dialect.limit(sql.toString()) : sql.toString();
+
+        for (int i = 0; i < orderColumns.size(); i++)
+            sql.append(i == 0 ? ORDER_BY : ",").append(dialect.quote(orderColumns.get(i))).append(descending.get(i) ? " DESC" : " ASC");
+
+        if (offset > 0)
+            return dialect.limitOffset(sql.toString());
+
+        return limit >= 0 ? dialect.limit(sql.toString()) : sql.toString();
+    }
+}
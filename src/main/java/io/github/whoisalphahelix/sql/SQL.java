@@ -2,15 +2,27 @@ package io.github.whoisalphahelix.sql;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
 import io.github.whoisalphahelix.sql.annotations.Column;
-import io.github.whoisalphahelix.sql.annotations.Table;
+import lombok.AccessLevel;
+import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
+import lombok.Setter;
+import lombok.Singular;
 import lombok.ToString;
 
 import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -18,55 +30,329 @@ import java.util.stream.Stream;
 @Getter
 @EqualsAndHashCode
 @ToString
-public class SQL {
+public class SQL implements AutoCloseable {
 
     private static final String CREATE = "CREATE TABLE IF NOT EXISTS %s (%s);";
     private static final String DROP = "DROP TABLE %s";
+    private static final String PRIMARY_KEY = "PRIMARY KEY (%s)";
+    private static final String CHANGE_LOG = "sql_change_log";
+    private static final Duration CHANGE_LOG_RETENTION = Duration.ofMinutes(10);
 
     private final HikariDataSource dataSource;
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final Dialect dialect;
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final ColumnCodecs codecs = ColumnCodecs.defaults();
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final ClassValue<TableMetadata<?>> metadata = new ClassValue<TableMetadata<?>>() {
+        @Override
+        protected TableMetadata<?> computeValue(Class<?> type) {
+            return new TableMetadata<>(SQL.this, type);
+        }
+    };
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile ExecutorService asyncExecutor;
+    @Setter
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile Executor callbackExecutor = Runnable::run;
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile SQLMetrics metrics = SQLMetrics.NONE;
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final ThreadLocal<Transaction> transaction = new ThreadLocal<>();
+
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final PoolMetrics poolMetrics;
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final Set<SQLTable<?>> tables = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile boolean ownsAsyncExecutor;
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile ChangeLog changeLog;
 
     public SQL(String driver, String jdbcPath, String username, String password) {
+        this(driver, jdbcPath, username, password, null, null, 0, 0, null, null, null, null, null, Collections.emptyMap());
+    }
+
+    public SQL(String driver, String jdbcPath) {
+        this(driver, jdbcPath, "", "");
+    }
+
+    @Builder
+    private SQL(String driver, String jdbcUrl, String username, String password, Dialect dialect, String poolName,
+                int maximumPoolSize, int minimumIdle, Duration connectionTimeout, Duration idleTimeout,
+                Duration maxLifetime, Duration leakDetectionThreshold, MetricsTrackerFactory metricsTrackerFactory,
+                @Singular Map<String, String> dataSourceProperties) {
         HikariConfig config = new HikariConfig();
 
-        config.setDriverClassName(driver);
-        config.setJdbcUrl(jdbcPath);
+        if (driver != null && !driver.isEmpty())
+            config.setDriverClassName(driver);
 
-        if (!username.isEmpty())
+        config.setJdbcUrl(jdbcUrl);
+
+        if (username != null && !username.isEmpty())
             config.setUsername(username);
-        if (!password.isEmpty())
+        if (password != null && !password.isEmpty())
             config.setPassword(password);
+        if (poolName != null)
+            config.setPoolName(poolName);
+        if (maximumPoolSize > 0)
+            config.setMaximumPoolSize(maximumPoolSize);
+        if (minimumIdle > 0)
+            config.setMinimumIdle(minimumIdle);
+        if (connectionTimeout != null)
+            config.setConnectionTimeout(connectionTimeout.toMillis());
+        if (idleTimeout != null)
+            config.setIdleTimeout(idleTimeout.toMillis());
+        if (maxLifetime != null)
+            config.setMaxLifetime(maxLifetime.toMillis());
+        if (leakDetectionThreshold != null)
+            config.setLeakDetectionThreshold(leakDetectionThreshold.toMillis());
+
+        this.dialect = dialect == null ? Dialects.of(jdbcUrl) : dialect;
+        this.dialect.getDataSourceProperties().forEach(config::addDataSourceProperty);
 
         config.addDataSourceProperty("cachePrepStmts", "true");
         config.addDataSourceProperty("prepStmtCacheSize", "250");
         config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        dataSourceProperties.forEach(config::addDataSourceProperty);
 
-        this.dataSource = new HikariDataSource(config);
-    }
+        this.poolMetrics = new PoolMetrics(metricsTrackerFactory);
+        config.setMetricsTrackerFactory(poolMetrics);
 
-    public SQL(String driver, String jdbcPath) {
-        this(driver, jdbcPath, "", "");
+        this.dataSource = new HikariDataSource(config);
+        this.poolMetrics.bind(dataSource);
     }
 
     public HikariDataSource getDataSource() {
         return dataSource;
     }
 
+    public ExecutorService getAsyncExecutor() {
+        ExecutorService executor = asyncExecutor;
+
+        if (executor == null) {
+            synchronized (this) {
+                if (asyncExecutor == null) {
+                    asyncExecutor = createAsyncExecutor(getDataSource().getMaximumPoolSize());
+                    ownsAsyncExecutor = true;
+                }
+
+                executor = asyncExecutor;
+            }
+        }
+
+        return executor;
+    }
+
+    public synchronized void setAsyncExecutor(ExecutorService asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+        this.ownsAsyncExecutor = false;
+    }
+
+    public SQL registerType(int id, Class<?> type) {
+        codecs.getBinaryFormat().register(id, type);
+        return this;
+    }
+
+    public void setMetrics(SQLMetrics metrics) {
+        this.metrics = metrics == null ? SQLMetrics.NONE : metrics;
+    }
+
+    public ChangeLog changeLog(Duration pollInterval) {
+        return changeLog(CHANGE_LOG, pollInterval, CHANGE_LOG_RETENTION);
+    }
+
+    public synchronized ChangeLog changeLog(String table, Duration pollInterval, Duration retention) {
+        ChangeLog log = new ChangeLog(this, table, retention);
+
+        execute(log.createQuery());
+        log.start(pollInterval);
+
+        ChangeLog old = this.changeLog;
+
+        this.changeLog = log;
+
+        if (old != null)
+            old.close();
+
+        return log;
+    }
+
+    void invalidateLogged(String table, String key) {
+        for (SQLTable<?> sqlTable : tables)
+            if (table == null || sqlTable.getTableName().equals(table))
+                sqlTable.invalidateLogged(key);
+    }
+
+    @Override
+    public void close() {
+        for (SQLTable<?> table : tables)
+            table.close();
+
+        tables.clear();
+
+        ChangeLog log = changeLog;
+
+        this.changeLog = null;
+
+        if (log != null)
+            log.close();
+
+        ExecutorService executor = asyncExecutor;
+
+        if (executor != null && ownsAsyncExecutor)
+            executor.shutdown();
+
+        dataSource.close();
+    }
+
+    /**
+     * Runs the work in a transaction, or in a savepoint when one is already active on this thread. The
+     * work's result is returned once committed. Work that calls {@link Transaction#setRollbackOnly()} is
+     * rolled back and {@code null} is returned; a failed statement, exception or error rolls it back and
+     * is rethrown, with checked {@link SQLException}s wrapped in a {@link TransactionException}.
+     */
+    public <R> R inTransaction(Transaction.Work<R> work) {
+        Transaction current = transaction.get();
+
+        if (current != null)
+            return inSavepoint(current, work);
+
+        try (Connection con = getDataSource().getConnection()) {
+            Transaction tx = new Transaction(this, con);
+            boolean autoCommit = con.getAutoCommit();
+            R result;
+
+            con.setAutoCommit(false);
+            transaction.set(tx);
+
+            try {
+                result = work.run(tx);
+
+                if (tx.isRollbackOnly()) {
+                    con.rollback();
+                    tx.rolledBack();
+                } else {
+                    con.commit();
+                }
+            } catch (Throwable t) {
+                try {
+                    con.rollback();
+                } catch (SQLException e) {
+                    t.addSuppressed(e);
+                }
+
+                tx.rolledBack();
+                throw t;
+            } finally {
+                transaction.remove();
+                tx.close();
+                con.setAutoCommit(autoCommit);
+            }
+
+            if (tx.getFailure() != null)
+                throw new TransactionException("Transaction rolled back after a failed statement", tx.getFailure());
+
+            return tx.isRollbackOnly() ? null : result;
+        } catch (SQLException e) {
+            throw new TransactionException("Transaction failed", e);
+        }
+    }
+
+    public Transaction getTransaction() {
+        return transaction.get();
+    }
+
+    private <R> R inSavepoint(Transaction tx, Transaction.Work<R> work) {
+        boolean rollbackOnly = tx.isRollbackOnly();
+        SQLException failure = tx.getFailure();
+
+        try {
+            Savepoint savepoint = tx.savepoint();
+            boolean rolledBack;
+            SQLException cause;
+            R result;
+
+            tx.setRollbackOnly(false);
+            tx.setFailure(null);
+
+            try {
+                result = work.run(tx);
+                rolledBack = tx.isRollbackOnly();
+                cause = tx.getFailure();
+
+                if (rolledBack)
+                    tx.rollback(savepoint);
+                else
+                    tx.release(savepoint);
+            } catch (Throwable t) {
+                try {
+                    tx.rollback(savepoint);
+                } catch (SQLException e) {
+                    t.addSuppressed(e);
+                    rollbackOnly = true;
+
+                    if (failure == null)
+                        failure = e;
+                }
+
+                throw t;
+            } finally {
+                tx.setRollbackOnly(rollbackOnly);
+                tx.setFailure(failure);
+            }
+
+            if (cause != null)
+                throw new TransactionException("Savepoint rolled back after a failed statement", cause);
+
+            return rolledBack ? null : result;
+        } catch (SQLException e) {
+            throw new TransactionException("Savepoint failed", e);
+        }
+    }
+
     public <T> SQLTable<T> createTable(String table, Function<List<?>, T> mapper, SQLColumn... sqlColumns) {
+        return createTable(table, mapper, null, Collections.emptyList(), new SQLIndex[0], sqlColumns);
+    }
+
+    private <T> SQLTable<T> createTable(String table, Function<List<?>, T> mapper, EntityMapper<T> entityMapper,
+                                        List<String> primaryKey, SQLIndex[] indexes, SQLColumn... sqlColumns) {
         StringBuilder infoBuilder = new StringBuilder();
 
         for (SQLColumn SQLColumn : sqlColumns)
-            infoBuilder.append(SQLColumn.toSQL()).append(",");
+            infoBuilder.append(SQLColumn.toSQL(dialect)).append(",");
+
+        if (primaryKey.size() > 1)
+            infoBuilder.append(String.format(PRIMARY_KEY, primaryKey.stream().map(dialect::quote).collect(Collectors.joining(",")))).append(",");
 
         String info = infoBuilder.reverse().replace(0, 1, "").reverse().toString();
-        String query = String.format(CREATE, table, info);
+        String query = String.format(CREATE, dialect.quote(table), info);
 
-        try {
-            getDataSource().getConnection().prepareStatement(query).execute();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        execute(query);
+
+        for (SQLIndex index : indexes)
+            createIndex(table, index);
+
+        SQLTable<T> sqlTable = new SQLTable<>(this, table, sqlColumns, indexes, mapper, entityMapper);
 
-        return new SQLTable<>(this, table, sqlColumns, mapper);
+        tables.add(sqlTable);
+        return sqlTable;
     }
 
     public <T> SQLTable<T> createTable(String table, SQLColumn... sqlColumns) {
@@ -74,102 +360,133 @@ public class SQL {
     }
 
     public <T> SQLTable<T> createTable(Class<T> table) {
-        Table tab = table.getAnnotation(Table.class);
-
-        if (tab == null) return null;
-
-        String name = (tab.value().isEmpty() ? table.getSimpleName() : tab.value());
-
-        return this.createTable(name, table);
+        return createTable(table, null);
     }
 
     public <T> SQLTable<T> createTable(Class<T> table, Function<List<?>, T> mapper) {
-        Table tab = table.getAnnotation(Table.class);
+        TableMetadata<T> meta = getTableMetadata(table);
 
-        if (tab == null) return null;
+        if (!meta.isTable()) return null;
 
-        String name = (tab.value().isEmpty() ? table.getSimpleName() : tab.value());
-
-        return this.createTable(name, table, mapper);
+        return this.createTable(meta.getTableName(), table, mapper);
     }
 
     public <T> SQLTable<T> createTable(String name, Class<T> table) {
-        return createTable(name, getSQLColumns(table).toArray(SQLColumn[]::new));
+        return createTable(name, table, null);
     }
 
     public <T> SQLTable<T> createTable(String name, Class<T> table, Function<List<?>, T> mapper) {
-        return createTable(name, mapper, getSQLColumns(table).toArray(SQLColumn[]::new));
+        TableMetadata<T> meta = getTableMetadata(table);
+
+        return createTable(name, mapper, meta.getEntityMapper(), meta.getPrimaryKeyColumns(), meta.getIndexArray(), meta.getColumnArray());
+    }
+
+    public void createIndex(String table, SQLIndex index) {
+        if (!dialect.supportsCreateIndexIfNotExists() && indexExists(table, index.getName(table)))
+            return;
+
+        execute(index.toSQL(dialect, table));
+    }
+
+    private boolean indexExists(String table, String index) {
+        Transaction tx = getTransaction();
+
+        try (Connection con = tx == null ? getDataSource().getConnection() : null) {
+            DatabaseMetaData meta = (tx == null ? con : tx.getConnection()).getMetaData();
+
+            try (ResultSet rs = meta.getIndexInfo(null, null, table, false, false)) {
+                while (rs.next())
+                    if (index.equalsIgnoreCase(rs.getString("INDEX_NAME")))
+                        return true;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return false;
     }
 
     public void dropTable(String table) {
-        try {
-            getDataSource().getConnection().prepareStatement(String.format(DROP, table)).executeUpdate();
+        tables.removeIf(sqlTable -> {
+            if (!sqlTable.getTableName().equals(table))
+                return false;
+
+            sqlTable.close();
+            return true;
+        });
+
+        execute(String.format(DROP, dialect.quote(table)));
+    }
+
+    private void execute(String query) {
+        Transaction tx = getTransaction();
+
+        if (tx != null) {
+            try (PreparedStatement prep = tx.getConnection().prepareStatement(query)) {
+                prep.execute();
+            } catch (SQLException e) {
+                tx.failed(e);
+                e.printStackTrace();
+            }
+
+            return;
+        }
+
+        try (Connection con = getDataSource().getConnection();
+             PreparedStatement prep = con.prepareStatement(query)) {
+            prep.execute();
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
     public String guessSQLColumnType(Class<?> type) {
-        if (type.equals(int.class) || type.equals(Integer.class))
-            return "INTEGER";
-        else if (type.equals(double.class) || type.equals(Double.class))
-            return "DOUBLE";
-        else if (type.equals(float.class) || type.equals(Float.class))
-            return "FLOAT";
-        else if (type.equals(short.class) || type.equals(Short.class))
-            return "SMALLINT";
-        else if (type.equals(boolean.class) || type.equals(Boolean.class))
-            return "BIT";
-        else if (type.equals(long.class) || type.equals(Long.class))
-            return "BIGINT";
-        else if (type.equals(byte.class) || type.equals(Byte.class))
-            return "TINYINT";
-        else if (type.equals(String.class))
-            return "VARCHAR";
-
-        return "JSON";
+        return dialect.columnType(type);
     }
 
-    public Stream<SQLColumn> getSQLColumns(Class<?> cls) {
-        return getColumnFields(cls)
-                .map(field -> {
-                    Column c = field.getAnnotation(Column.class);
-
-                    return new SQLColumn(
-                            c.name().isEmpty() ? field.getName().toLowerCase() : c.name(),
-                            c.type().isEmpty() ? guessSQLColumnType(field.getType()) : c.type(),
-                            c.additionals()
-                    );
-                });
+    // Bounded by the pool size either way: unbounded virtual threads would only queue up inside Hikari.
+    private static ExecutorService createAsyncExecutor(int threads) {
+        return Executors.newFixedThreadPool(Math.max(1, threads), createAsyncThreadFactory());
     }
 
-    public Stream<Field> getColumnFields(Class<?> cls) {
-        return getDeclaredFields(cls).stream().filter(field -> field.isAnnotationPresent(Column.class)).peek(field -> field.setAccessible(true));
+    private static ThreadFactory createAsyncThreadFactory() {
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Object virtual = Thread.class.getMethod("ofVirtual").invoke(null);
+
+            virtual = builder.getMethod("name", String.class, long.class).invoke(virtual, "sql-async-", 1L);
+            return (ThreadFactory) builder.getMethod("factory").invoke(virtual);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            AtomicInteger count = new AtomicInteger();
+
+            return runnable -> {
+                Thread thread = new Thread(runnable, "sql-async-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
     }
 
-    private List<Field> getDeclaredFields(Class<?> clazz) {
-        return getDeclaredFields(getSuperTypes(clazz).toArray(new Class[0]));
+    @SuppressWarnings("unchecked") // metadata is always computed for the class it is keyed by
+    public <T> TableMetadata<T> getTableMetadata(Class<T> cls) {
+        return (TableMetadata<T>) metadata.get(cls);
     }
 
-    private List<Field> getDeclaredFields(Class<?>... classes) {
-        return flat(Arrays.stream(classes).map(aClass -> Arrays.stream(aClass.getDeclaredFields()).collect(Collectors.toList())).collect(Collectors.toList()));
+    public Stream<SQLColumn> getSQLColumns(Class<?> cls) {
+        return getTableMetadata(cls).getColumns().stream();
     }
 
-    private List<Class<?>> getSuperTypes(Class<?> baseClass) {
-        List<Class<?>> supers = new ArrayList<>(Collections.singletonList(baseClass));
+    public <T> EntityMapper<T> getEntityMapper(Class<T> cls) {
+        return getTableMetadata(cls).getEntityMapper();
+    }
 
-        while (baseClass.getSuperclass() != null) {
-            supers.add(baseClass.getSuperclass());
-            baseClass = baseClass.getSuperclass();
-        }
+    public String getColumnName(Field field) {
+        Column c = field.getAnnotation(Column.class);
 
-        return supers;
+        return c == null || c.name().isEmpty() ? field.getName().toLowerCase() : c.name();
     }
 
-    private <T> List<T> flat(List<List<T>> list) {
-        return list.stream().reduce((l1, l2) -> {
-            l1.addAll(l2);
-            return l1;
-        }).orElse(new LinkedList<>());
+    public Stream<Field> getColumnFields(Class<?> cls) {
+        return getTableMetadata(cls).getFields().stream();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,9 @@
+package io.github.whoisalphahelix.sql;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+@FunctionalInterface
+interface SQLBinder<R> {
+    void bind(PreparedStatement prep, R row) throws SQLException;
+}
@@ -7,6 +7,7 @@ import lombok.ToString;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 
 @Getter
 @ToString
@@ -22,7 +23,19 @@ public class SQLColumn {
 		this.additional = new ArrayList<>(Arrays.asList(additional));
 	}
 	
+	public boolean isPrimaryKey() {
+		return additional.stream().anyMatch(a -> a.toUpperCase(Locale.ROOT).contains("PRIMARY KEY"));
+	}
+	
 	public String toSQL() {
+		return toSQL(name);
+	}
+	
+	public String toSQL(Dialect dialect) {
+		return toSQL(dialect.quote(name));
+	}
+	
+	private String toSQL(String name) {
 		if(additional.isEmpty())
 			return name + " " + type;
 		return name + " " + type + " " + additional.toString()
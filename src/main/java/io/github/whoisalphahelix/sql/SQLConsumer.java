@@ -0,0 +1,8 @@
+package io.github.whoisalphahelix.sql;
+
+import java.sql.SQLException;
+
+@FunctionalInterface
+interface SQLConsumer<I> {
+    void accept(I input) throws SQLException;
+}
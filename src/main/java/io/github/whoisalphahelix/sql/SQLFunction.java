@@ -0,0 +1,8 @@
+package io.github.whoisalphahelix.sql;
+
+import java.sql.SQLException;
+
+@FunctionalInterface
+interface SQLFunction<I, R> {
+    R apply(I input) throws SQLException;
+}
@@ -0,0 +1,43 @@
+package io.github.whoisalphahelix.sql;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@Getter
+@ToString
+@EqualsAndHashCode
+public class SQLIndex {
+	
+	private final String name;
+	private final List<String> columns;
+	private final boolean unique;
+	
+	public SQLIndex(String name, boolean unique, String... columns) {
+		if(columns.length == 0)
+			throw new IllegalArgumentException("Index " + name + " needs at least one column");
+		
+		this.name = name == null ? "" : name;
+		this.unique = unique;
+		this.columns = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(columns)));
+	}
+	
+	public SQLIndex(String... columns) {
+		this("", false, columns);
+	}
+	
+	public String getName(String table) {
+		if(!name.isEmpty())
+			return name;
+		return (unique ? "ux_" : "ix_") + table + "_" + String.join("_", columns);
+	}
+	
+	public String toSQL(Dialect dialect, String table) {
+		return dialect.createIndex(table, getName(table), columns.toArray(new String[0]), unique);
+	}
+}
@@ -0,0 +1,27 @@
+package io.github.whoisalphahelix.sql;
+
+public interface SQLMetrics {
+
+    SQLMetrics NONE = new SQLMetrics() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+    default boolean isEnabled() {
+        return true;
+    }
+
+    default void recordOperation(String table, String operation, long nanos, boolean success) {
+    }
+
+    default void recordCheckout(String table, String operation, long nanos) {
+    }
+
+    default void recordRows(String table, String operation, long read, long written) {
+    }
+
+    default void recordEncoded(String table, String column, long bytes) {
+    }
+}
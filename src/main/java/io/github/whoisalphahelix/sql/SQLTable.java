@@ -2,79 +2,184 @@ package io.github.whoisalphahelix.sql;
 
 import io.github.whoisalphahelix.sql.annotations.Table;
 import lombok.Getter;
+import lombok.Setter;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Getter
 public class SQLTable<T> {
 
     private static final String INSERT = "INSERT INTO %s (%s) VALUES (%s)";
-    private static final String SELECT_ALL = "SELECT * FROM %s";
-    private static final String SELECT_WHERE = SELECT_ALL + " WHERE %s = %s";
-    private static final String SELECT_WHERE_MULTIPLE = SELECT_ALL + " WHERE %s";
+    private static final String UPSERT = "UPSERT";
+    private static final String INSERT_IGNORE = "INSERT IGNORE";
+    private static final String SELECT_ALL = "SELECT %s FROM %s";
+    private static final String SELECT_WHERE = SELECT_ALL + " WHERE %s";
+    private static final String SELECT_IN = SELECT_ALL + " WHERE %s IN (%s)";
+    private static final String PAGE = SELECT_ALL + " ORDER BY %s";
+    private static final String PAGE_AFTER = SELECT_ALL + " WHERE %s > ? ORDER BY %s";
     private static final String SELECT_COLUMN = "SELECT %s FROM %s";
-    private static final String REMOVE = "DELETE FROM %s WHERE %s = %s";
+    private static final String SELECT_COLUMN_WHERE = SELECT_COLUMN + " WHERE %s";
     private static final String REMOVE_WHERE = "DELETE FROM %s WHERE %s";
     private static final String DELETE = "DELETE FROM %s";
-    private static final String UPDATE = "UPDATE %s SET %s = %s WHERE %s = %s";
-    private static final String UPDATE_WHERE = "UPDATE %s SET %s = %s WHERE %s";
-    private static final JsonHelper JSON = new JsonHelper();
+    private static final String SELECT_LEGACY = "SELECT DISTINCT %s FROM %s WHERE %s LIKE '{%%'";
+    private static final String UPDATE_WHERE = "UPDATE %s SET %s = ? WHERE %s";
+    private static final String UPDATE_COLUMNS = "UPDATE %s SET %s WHERE %s = ?";
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_FETCH_SIZE = 500;
+    private static final int MAX_LOOKUP_CHUNK = 512;
 
     private final SQL sql;
     private final String tableName;
+    private final String quotedName;
+    private final Dialect dialect;
     private final String tableInfo;
     private final SQLColumn[] sqlColumns;
-    private final Map<String, Object> keyValueStore = new HashMap<>();
+    private final String[] columnNames;
+    private final SQLColumn primaryKey;
+    private final List<SQLIndex> indexes;
     private final Function<List<?>, T> mapper;
-
-    SQLTable(SQL sql, String tableName, SQLColumn[] columns, Function<List<?>, T> mapper) {
+    private final EntityMapper<T> entityMapper;
+    private final Map<String, ColumnCodec<Object>> codecs = new HashMap<>();
+    private final Map<String, Map<List<String>, String>> templates = new ConcurrentHashMap<>();
+    @Setter
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    @Setter
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+    private volatile EntityCache<T> cache;
+    private volatile ChangeTracker<T> tracker;
+    private volatile WriteBehindBuffer writeBehind;
+
+    SQLTable(SQL sql, String tableName, SQLColumn[] columns, SQLIndex[] indexes, Function<List<?>, T> mapper, EntityMapper<T> entityMapper) {
         this.sql = sql;
         this.sqlColumns = columns;
+        this.columnNames = Arrays.stream(columns).map(SQLColumn::getName).toArray(String[]::new);
+
+        this.dialect = sql.getDialect();
 
         StringBuilder tableInfoBuilder = new StringBuilder();
 
         for (SQLColumn c : sqlColumns)
-            tableInfoBuilder.append(",").append(c.getName());
+            tableInfoBuilder.append(",").append(dialect.quote(c.getName()));
 
         this.tableName = tableName;
+        this.quotedName = dialect.quote(tableName);
         this.tableInfo = tableInfoBuilder.replace(0, 1, "").toString();
         this.mapper = mapper;
+        this.entityMapper = entityMapper;
+        this.primaryKey = Arrays.stream(columns).filter(SQLColumn::isPrimaryKey).findFirst().orElse(null);
+        this.indexes = new CopyOnWriteArrayList<>(indexes);
+
+        for (SQLColumn c : sqlColumns) {
+            EntityMapper.FieldMapping field = entityMapper == null ? null : entityMapper.column(c.getName());
+
+            codecs.put(c.getName(), field != null ? field.getCodec() : sql.getCodecs().codec(null, c.getType()));
+        }
     }
 
-    public SQLTable<T> insert(SQLColumn[] columns, Object... values) {
-        return insert(Arrays.stream(columns).map(SQLColumn::getName).toArray(String[]::new),
-                Arrays.stream(values).map(this::setEscaped).toArray());
+    public AsyncSQLTable<T> async() {
+        return new AsyncSQLTable<>(this);
     }
 
-    public SQLTable<T> insert(String[] columns, Object... values) {
-        if (values.length != columns.length)
-            return this;
+    /**
+     * Buffers single-column updates and writes them in batches. Pending updates are flushed before any
+     * read or other write on this table, so callers always read their own writes. Inside a transaction
+     * updates are written through instead, and pending updates are flushed in the background on the
+     * buffer's own connection rather than before each read.
+     */
+    public SQLTable<T> writeBehind(int maxPending, Duration flushInterval) {
+        WriteBehindBuffer old = this.writeBehind;
+
+        this.writeBehind = new WriteBehindBuffer(this, maxPending, flushInterval);
+
+        if (old != null)
+            old.close();
+
+        return this;
+    }
+
+    public int flush() {
+        WriteBehindBuffer buffer = this.writeBehind;
+
+        return buffer == null ? 0 : buffer.flush();
+    }
+
+    public void close() {
+        WriteBehindBuffer buffer = this.writeBehind;
+
+        this.writeBehind = null;
+
+        if (buffer != null)
+            buffer.close();
+    }
+
+    public SQLTable<T> createIndex(SQLIndex index) {
+        getSql().createIndex(tableName, index);
+
+        if (!indexes.contains(index))
+            indexes.add(index);
+
+        return this;
+    }
+
+    public boolean isIndexed(String column) {
+        return isPrimaryKey(column) || indexes.stream().anyMatch(index -> index.getColumns().get(0).equals(column));
+    }
+
+    /**
+     * Caches entities by primary key. Cached instances are shared between callers and must be treated as
+     * read-only; change a copy and save it instead. Inside a transaction the cache is bypassed and written
+     * keys are evicted, so uncommitted rows never become visible to other threads.
+     */
+    public SQLTable<T> cache(EntityCache<T> cache) {
+        if (cache != null && primaryKey == null)
+            throw new IllegalStateException("Table " + tableName + " has no PRIMARY KEY column to cache by");
+
+        this.cache = cache;
+        return this;
+    }
 
-        StringBuilder columnInfo = new StringBuilder();
+    public SQLTable<T> trackChanges(int maximumSize) {
+        if (maximumSize > 0 && (primaryKey == null || entityMapper == null))
+            throw new IllegalStateException("Table " + tableName + " needs a PRIMARY KEY column and an entity type to track changes");
 
-        for (String column : columns)
-            columnInfo.append(",").append(column);
+        this.tracker = maximumSize > 0 ? new ChangeTracker<>(entityMapper, primaryKey.getName(), maximumSize) : null;
+        return this;
+    }
+
+    public boolean isTrackingChanges() {
+        return tracker != null;
+    }
 
-        StringBuilder sqlValues = new StringBuilder();
+    public SQLTable<T> insert(SQLColumn[] columns, Object... values) {
+        return insert(Arrays.stream(columns).map(SQLColumn::getName).toArray(String[]::new), values);
+    }
 
-        for (Object str : values)
-            sqlValues.append(",").append(str);
+    public SQLTable<T> insert(String[] columns, Object... values) {
+        if (values.length != columns.length)
+            return this;
 
         if (!getSql().getDataSource().isRunning())
             return null;
 
-        String query = String.format(INSERT, tableName, columnInfo.replace(0, 1, "").toString(),
-                sqlValues.toString().replaceFirst(",", ""));
-
-        eUpdate(query);
+        flushPending();
+        executeUpdate("insert", insertQuery(columns), prep -> bind(prep, 1, columns, values), changedKey(columns, values));
 
         return this;
     }
@@ -86,24 +191,32 @@ public class SQLTable<T> {
     public SQLTable<T> insert(T o) {
         if (!o.getClass().isAnnotationPresent(Table.class)) return null;
 
-        return insert(demap(o));
+        if (!mapsEntity(o))
+            return insert(demap(o));
+
+        if (!getSql().getDataSource().isRunning())
+            return null;
+
+        flushPending();
+
+        if (executeUpdate("insert", insertQuery(columnNames), prep -> bindEntity(prep, 1, o), changedKey(o)) > 0)
+            cachePut(o);
+
+        return this;
     }
 
     public SQLTable<T> insert(String column, String data) {
-        String val = "'" + data + "'";
-
         if (!getSql().getDataSource().isRunning())
             return null;
 
-        String query = String.format(INSERT, tableName, column, val);
-
-        eUpdate(query);
+        flushPending();
+        executeUpdate("insert", insertQuery(column), prep -> prep.setString(1, data), changedKey(column, data));
 
         return this;
     }
 
     public SQLTable<T> insert(String column, Object data) {
-        return insert(column, set(data));
+        return insert(new String[]{column}, data);
     }
 
     public SQLTable<T> insert(SQLColumn column, String data) {
@@ -119,7 +232,7 @@ public class SQLTable<T> {
     }
 
     public SQLTable<T> insertIfAbsent(String column, Object data) {
-        return insertIf(column, data, this::contains);
+        return insertIf(column, data, (c, d) -> !contains(c, d));
     }
 
     public SQLTable<T> insertIf(T data, Function<T, Boolean> condition) {
@@ -127,49 +240,305 @@ public class SQLTable<T> {
     }
 
     public SQLTable<T> insertIfAbsent(T data) {
-        return insertIf(data, this::contains);
+        if (primaryKey == null || !mapsEntity(data) || dialect.insertIgnore(tableName, columnNames, primaryKey.getName()) == null)
+            return insertIf(data, d -> !contains(d));
+
+        if (!getSql().getDataSource().isRunning())
+            return null;
+
+        flushPending();
+
+        if (executeUpdate("insert", insertIgnoreQuery(columnNames), prep -> bindEntity(prep, 1, data), changedKey(data)) > 0)
+            cachePut(data);
+
+        return this;
+    }
+
+    public SQLTable<T> save(T o) {
+        requirePrimaryKey();
+
+        if (!mapsEntity(o))
+            return upsert(columnNames, demap(o));
+
+        if (!getSql().getDataSource().isRunning())
+            return null;
+
+        flushPending();
+
+        ChangeTracker<T> tracker = this.tracker;
+
+        if (tracker == null) {
+            if (executeUpdate("save", upsertQuery(columnNames), prep -> bindEntity(prep, 1, o), changedKey(o)) > 0)
+                cachePut(o);
+
+            return this;
+        }
+
+        ChangeTracker<T>.Changes changes;
+
+        try {
+            changes = tracker.diff(o);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return this;
+        }
+
+        if (changes.isClean())
+            return this;
+
+        SQLMetrics metrics = getSql().getMetrics();
+        boolean saved = changes.isTracked() && executeUpdate("save", updateColumnsQuery(changes.columns()), prep -> {
+            int index = changes.bind(prep, 1, false, metrics, tableName);
+            bind(prep, index, primaryKey.getName(), changes.getKey());
+        }, changes.getKey()) > 0;
+
+        if (!saved)
+            saved = executeUpdate("save", upsertQuery(columnNames), prep -> changes.bind(prep, 1, true, metrics, tableName), changes.getKey()) > 0;
+
+        if (saved) {
+            cachePut(o);
+            tracker.saved(changes);
+        }
+
+        return this;
+    }
+
+    public SQLTable<T> upsert(String[] columns, Object... values) {
+        requirePrimaryKey();
+
+        int key = Arrays.asList(columns).indexOf(primaryKey.getName());
+
+        if (key < 0)
+            throw new IllegalArgumentException("Upsert on " + tableName + " requires the primary key column " + primaryKey.getName());
+
+        if (!getSql().getDataSource().isRunning())
+            return null;
+
+        flushPending();
+        executeUpdate("save", upsertQuery(columns), prep -> bind(prep, 1, columns, values), values[key]);
+        invalidate(primaryKey.getName(), values[key]);
+
+        return this;
+    }
+
+    public SQLTable<T> upsert(SQLColumn[] columns, Object... values) {
+        return upsert(Arrays.stream(columns).map(SQLColumn::getName).toArray(String[]::new), values);
+    }
+
+    public BatchResult saveAll(Collection<T> data) {
+        return saveAll(data, batchSize);
+    }
+
+    public BatchResult saveAll(Collection<T> data, int chunkSize) {
+        requirePrimaryKey();
+        flushPending();
+
+        if (entityMapper != null) {
+            BatchResult result = executeBatch("saveAll", upsertQuery(columnNames), data, (prep, o) -> bindEntity(prep, 1, o), this::changedKey, chunkSize);
+
+            if (result.isCommitted())
+                data.forEach(this::cachePut);
+            else
+                invalidateAll();
+
+            return result;
+        }
+
+        List<Object[]> rows = rows(data);
+
+        BatchResult result = executeBatch("saveAll", upsertQuery(columnNames), rows, (prep, row) -> bind(prep, 1, columnNames, row),
+                row -> changedKey(columnNames, row), chunkSize);
+
+        result.setRejectedRows(data.size() - rows.size());
+        invalidateAll();
+        return result;
+    }
+
+    public BatchResult insertAll(Collection<T> data) {
+        return insertAll(data, batchSize);
+    }
+
+    public BatchResult insertAll(Collection<T> data, int chunkSize) {
+        flushPending();
+
+        if (entityMapper != null) {
+            BatchResult result = executeBatch("insertAll", insertQuery(columnNames), data, (prep, o) -> bindEntity(prep, 1, o), this::changedKey, chunkSize);
+
+            if (result.isCommitted())
+                data.forEach(this::cachePut);
+
+            return result;
+        }
+
+        List<Object[]> rows = rows(data);
+
+        BatchResult result = executeBatch("insertAll", insertQuery(columnNames), rows, (prep, row) -> bind(prep, 1, columnNames, row),
+                row -> changedKey(columnNames, row), chunkSize);
+
+        result.setRejectedRows(data.size() - rows.size());
+        return result;
     }
 
     public T getRow(SQLKey<?> key) {
-        return mapper.apply(getRowData(key));
+        return getRow(key.getColumn(), key.getKey());
     }
 
     public T getRow(SQLKey<?>... keys) {
-        return mapper.apply(getRowData(keys));
+        return getRow(Arrays.stream(keys).map(SQLKey::getColumn).toArray(SQLColumn[]::new),
+                Arrays.stream(keys).map(SQLKey::getKey).toArray());
     }
 
     public T getRow(SQLColumn column, Object key) {
-        return mapper.apply(getRowData(column, key));
+        return getRow(column.getName(), key);
     }
 
     public T getRow(SQLColumn[] columns, Object... keys) {
-        return mapper.apply(getRowData(columns, keys));
+        return getRow(Arrays.stream(columns).map(SQLColumn::getName).toArray(String[]::new), keys);
     }
 
     public T getRow(String column, Object key) {
-        return mapper.apply(getRowData(column, key));
+        return getRow(new String[]{column}, key);
     }
 
     public T getRow(String[] columns, Object... keys) {
-        return mapper.apply(getRowData(columns, keys));
+        flushPending();
+
+        EntityCache<T> cache = activeCache();
+
+        if (cache != null && isPrimaryKey(columns))
+            return cache.get(keys[0], key -> loadRow(columns, keys));
+
+        return loadRow(columns, keys);
     }
 
-    public List<?> getRowData(String[] columns, Object... keys) {
+    private T loadRow(String[] columns, Object... keys) {
+        if (mapper != null)
+            return mapper.apply(getRowData(columns, keys));
+
         if (columns.length != keys.length || !getSql().getDataSource().isRunning())
-            return new LinkedList<>();
+            return null;
+
+        return executeQuery("getRow", selectWhereQuery(columns), prep -> bind(prep, 1, columns, keys),
+                rs -> rs.next() ? readEntity(rs) : null, null);
+    }
 
-        String query = buildMultipleWhereQuery(columns, keys);
+    public <K> Map<K, T> getRows(String column, Collection<K> keys) {
+        flushPending();
 
-        try (Connection con = getSql().getDataSource().getConnection()) {
-            PreparedStatement prepstate = con.prepareStatement(query);
-            prepstate.closeOnCompletion();
+        Map<Object, K> requested = new LinkedHashMap<>();
 
-            return groupTo(prepstate.executeQuery());
-        } catch (SQLException e) {
-            e.printStackTrace();
+        for (K key : keys)
+            if (key != null)
+                requested.putIfAbsent(EntityCache.normalize(key), key);
+
+        Map<Object, T> found = new ConcurrentHashMap<>();
+        EntityCache<T> cache = isPrimaryKey(column) ? activeCache() : null;
+        long stamp = cache == null ? 0 : cache.stamp();
+        List<Object> missing = new ArrayList<>(requested.size());
+
+        for (Map.Entry<Object, K> entry : requested.entrySet()) {
+            T cached = cache == null ? null : cache.get(entry.getKey());
+
+            if (cached != null)
+                found.put(entry.getKey(), cached);
+            else
+                missing.add(entry.getValue());
         }
 
-        return new LinkedList<>();
+        if (!missing.isEmpty() && getSql().getDataSource().isRunning()) {
+            int keyIndex = Arrays.asList(columnNames).indexOf(column);
+
+            if (keyIndex < 0)
+                throw new IllegalArgumentException("Unknown column " + column + " in " + tableName);
+
+            int chunkSize = Integer.highestOneBit(Math.max(1, Math.min(MAX_LOOKUP_CHUNK, dialect.getMaxParameters())));
+            List<List<Object>> chunks = new ArrayList<>();
+
+            for (int i = 0; i < missing.size(); i += chunkSize)
+                chunks.add(missing.subList(i, Math.min(missing.size(), i + chunkSize)));
+
+            if (chunks.size() > 1 && getSql().getTransaction() == null) {
+                loadRowsConcurrently(column, keyIndex, chunks, found);
+            } else {
+                for (List<Object> chunk : chunks)
+                    loadRows(column, keyIndex, chunk, found);
+            }
+
+            if (cache != null)
+                for (Object key : missing)
+                    if (found.containsKey(EntityCache.normalize(key)))
+                        cache.putIfUnchanged(key, found.get(EntityCache.normalize(key)), stamp);
+        }
+
+        Map<K, T> rows = new LinkedHashMap<>();
+
+        for (Map.Entry<Object, K> entry : requested.entrySet()) {
+            T row = found.get(entry.getKey());
+
+            if (row != null)
+                rows.put(entry.getValue(), row);
+        }
+
+        return rows;
+    }
+
+    public <K> Map<K, T> getRows(SQLColumn column, Collection<K> keys) {
+        return getRows(column.getName(), keys);
+    }
+
+    private void loadRowsConcurrently(String column, int keyIndex, List<List<Object>> chunks, Map<Object, T> found) {
+        Queue<List<Object>> pending = new ConcurrentLinkedQueue<>(chunks);
+        CountDownLatch done = new CountDownLatch(chunks.size());
+        Runnable drain = () -> {
+            List<Object> chunk;
+
+            while ((chunk = pending.poll()) != null) {
+                try {
+                    loadRows(column, keyIndex, chunk, found);
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+
+        int helpers = Math.min(chunks.size(), getSql().getDataSource().getMaximumPoolSize()) - 1;
+
+        for (int i = 0; i < helpers; i++)
+            getSql().getAsyncExecutor().execute(drain);
+
+        drain.run();
+
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void loadRows(String column, int keyIndex, List<Object> keys, Map<Object, T> found) {
+        int size = Integer.highestOneBit(keys.size()) == keys.size() ? keys.size() : Integer.highestOneBit(keys.size()) << 1;
+
+        executeQuery("getRows", selectInQuery(column, size), prep -> {
+            for (int i = 0; i < size; i++)
+                bind(prep, i + 1, column, keys.get(Math.min(i, keys.size() - 1)));
+        }, rs -> {
+            while (rs.next()) {
+                T row = readEntity(rs);
+                Object key = readValue(rs, keyIndex + 1, column);
+
+                if (row != null && key != null)
+                    found.put(EntityCache.normalize(key), row);
+            }
+
+            return found;
+        }, found);
+    }
+
+    public List<?> getRowData(String[] columns, Object... keys) {
+        if (columns.length != keys.length || !getSql().getDataSource().isRunning())
+            return new LinkedList<>();
+
+        return executeQuery("getRowData", selectWhereQuery(columns), prep -> bind(prep, 1, columns, keys), this::groupTo, new LinkedList<>());
     }
 
     public List<?> getRowData(SQLKey<?>... keys) {
@@ -190,77 +559,168 @@ public class SQLTable<T> {
     }
 
     public List<?> getRowData(String column, Object key) {
-        if (!getSql().getDataSource().isRunning())
-            return new LinkedList<>();
+        return getRowData(new String[]{column}, key);
+    }
 
-        String query = String.format(SELECT_WHERE, tableName, column, setEscaped(key));
+    public List<T> getAll() {
+        if (mapper != null)
+            return getAllData().stream().map(mapper).collect(Collectors.toList());
 
-        try (Connection con = getSql().getDataSource().getConnection()) {
-            PreparedStatement prepstate = con.prepareStatement(query);
-            prepstate.closeOnCompletion();
+        if (!getSql().getDataSource().isRunning())
+            return new LinkedList<>();
 
-            return groupTo(prepstate.executeQuery());
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        return executeQuery("getAll", selectAllQuery(), rs -> {
+            List<T> objs = new ArrayList<>();
 
-        return new LinkedList<>();
-    }
+            while (rs.next())
+                objs.add(readEntity(rs));
 
-    public List<T> getAll() {
-        return getAllData().stream().map(mapper).collect(Collectors.toList());
+            return objs;
+        }, new LinkedList<>());
     }
 
     public List<List<?>> getAllData() {
         if (!getSql().getDataSource().isRunning())
             return new LinkedList<>();
 
-        List<List<?>> objs = new LinkedList<>();
-        String query = String.format(SELECT_ALL, tableName);
+        return executeQuery("getAllData", selectAllQuery(), rs -> {
+            List<List<?>> objs = new LinkedList<>();
 
-        try (Connection con = getSql().getDataSource().getConnection()) {
-            PreparedStatement prep = con.prepareStatement(query);
-            prep.closeOnCompletion();
-            ResultSet rs = prep.executeQuery();
+            while (rs.next())
+                objs.add(readRow(rs));
 
-            while (rs.next()) {
-                List<?> rowObjects = new LinkedList<>();
+            return objs;
+        }, new LinkedList<>());
+    }
+
+    public Stream<T> stream() {
+        if (mapper != null)
+            return streamData().map(mapper);
+
+        return streamQuery("stream", selectAllQuery(), this::readEntity);
+    }
+
+    public Stream<List<?>> streamData() {
+        return streamQuery("streamData", selectAllQuery(), this::readRow);
+    }
+
+    public Page<T> page(Object afterKey, int limit) {
+        requirePrimaryKey();
+        return page(primaryKey.getName(), afterKey, limit);
+    }
+
+    public Page<T> page(String orderColumn, Object afterKey, int limit) {
+        if (limit <= 0)
+            throw new IllegalArgumentException("Page limit must be positive, got " + limit);
+
+        int keyIndex = Arrays.asList(columnNames).indexOf(orderColumn);
+
+        if (keyIndex < 0)
+            throw new IllegalArgumentException("Unknown column " + orderColumn + " in " + tableName);
+
+        if (!getSql().getDataSource().isRunning())
+            return new Page<>(new ArrayList<>(), afterKey, false);
 
-                for (SQLColumn c : this.getSqlColumns())
-                    rowObjects.add(getJson(rs.getString(c.getName())));
+        return executeQuery("page", afterKey == null ? pageQuery(orderColumn) : pageAfterQuery(orderColumn), prep -> {
+            int index = 1;
 
-                objs.add(rowObjects);
+            if (afterKey != null)
+                bind(prep, index++, orderColumn, afterKey);
+
+            prep.setInt(index, limit + 1);
+        }, rs -> {
+            List<T> items = new ArrayList<>(limit);
+            Object last = afterKey;
+
+            while (items.size() < limit && rs.next()) {
+                items.add(readEntity(rs));
+                last = readValue(rs, keyIndex + 1, orderColumn);
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
 
-        return objs;
+            return new Page<>(items, last, rs.next());
+        }, new Page<>(new ArrayList<>(), afterKey, false));
+    }
+
+    public <C> Stream<C> streamColumnData(String column) {
+        String query = template(SELECT_COLUMN, () -> String.format(SELECT_COLUMN, dialect.quote(column), quotedName), column);
+
+        return streamQuery("streamColumnData", query, rs -> readValue(rs, 1, column));
+    }
+
+    public void forEach(Consumer<T> consumer) {
+        try (Stream<T> rows = stream()) {
+            rows.forEach(consumer);
+        }
     }
 
     public <C> List<C> getAllColumnData(String column) {
         if (!getSql().getDataSource().isRunning())
             return new LinkedList<>();
 
-        List<C> objs = new LinkedList<>();
-        String query = String.format(SELECT_COLUMN, column, tableName);
+        String query = template(SELECT_COLUMN, () -> String.format(SELECT_COLUMN, dialect.quote(column), quotedName), column);
 
-        try (Connection con = getSql().getDataSource().getConnection()) {
-            PreparedStatement prep = con.prepareStatement(query);
-            prep.closeOnCompletion();
-            ResultSet rs = prep.executeQuery();
+        return executeQuery("getAllColumnData", query, rs -> {
+            List<C> objs = new LinkedList<>();
 
             while (rs.next())
-                objs.add(getJson(rs.getString(column)));
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+                objs.add(readValue(rs, 1, column));
 
-        return objs;
+            return objs;
+        }, new LinkedList<>());
     }
 
     public List<List<?>> getAllColumnData(String... column) {
-        return Arrays.stream(column).map(this::getAllColumnData).collect(Collectors.toList());
+        Projection projection = project(column);
+
+        return Arrays.stream(column).map(projection::getValues).collect(Collectors.toList());
+    }
+
+    public Projection project(String... columns) {
+        Projection empty = emptyProjection(columns);
+
+        if (!getSql().getDataSource().isRunning())
+            return empty;
+
+        String query = template(SELECT_COLUMN, () -> String.format(SELECT_COLUMN,
+                Arrays.stream(columns).map(dialect::quote).collect(Collectors.joining(",")), quotedName), columns);
+
+        return executeQuery("project", query, rs -> readProjection(rs, columns), empty);
+    }
+
+    public Query<T> query() {
+        return new Query<>(this);
+    }
+
+    public Query<T> where(Condition condition) {
+        return query().where(condition);
+    }
+
+    public long count() {
+        return query().count();
+    }
+
+    public long count(Condition... conditions) {
+        return query().where(Condition.and(conditions)).count();
+    }
+
+    public boolean exists(Condition... conditions) {
+        return query().where(Condition.and(conditions)).exists();
+    }
+
+    public <C> C min(String column) {
+        return query().min(column);
+    }
+
+    public <C> C max(String column) {
+        return query().max(column);
+    }
+
+    public Number sum(String column) {
+        return query().sum(column);
+    }
+
+    public Double avg(String column) {
+        return query().avg(column);
     }
 
     public List<?> getData(SQLKey<?>... keys) {
@@ -296,24 +756,8 @@ public class SQLTable<T> {
         if (!getSql().getDataSource().isRunning())
             return null;
 
-        String query = String.format(SELECT_WHERE, tableName, column, setEscaped(key));
-
-        try (Connection con = getSql().getDataSource().getConnection()) {
-            PreparedStatement prepstate = con.prepareStatement(query);
-            prepstate.closeOnCompletion();
-
-            ResultSet rs = prepstate.executeQuery();
-
-            if (rs == null)
-                return null;
-
-            if (rs.next())
-                return getJson(rs.getString(column));
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-
-        return null;
+        return executeQuery("getData", selectColumnWhereQuery(column, column), prep -> bind(prep, 1, column, key),
+                rs -> rs.next() ? readValue(rs, 1, column) : null, null);
     }
 
     public SQLTable<T> remove(SQLKey<?> key) {
@@ -328,9 +772,11 @@ public class SQLTable<T> {
         if (!getSql().getDataSource().isRunning())
             return null;
 
-        String query = String.format(REMOVE, tableName, column, setEscaped(key));
+        flushPending();
+        executeUpdate("remove", removeWhereQuery(column), prep -> bind(prep, 1, column, key), changedKey(column, key));
+        invalidate(column, key);
 
-        return executeQueryUpdate(query);
+        return this;
     }
 
     public SQLTable<T> remove(SQLKey<?>... keys) {
@@ -346,43 +792,88 @@ public class SQLTable<T> {
         if (columns.length != keys.length || !getSql().getDataSource().isRunning())
             return null;
 
-        String query = String.format(REMOVE_WHERE, tableName, buildMultipleWhere(columns, keys));
-
-        try (Connection con = getSql().getDataSource().getConnection()) {
-            PreparedStatement prep = con.prepareStatement(query);
-            prep.closeOnCompletion();
-            prep.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        flushPending();
+        executeUpdate("remove", removeWhereQuery(columns), prep -> bind(prep, 1, columns, keys), changedKey(columns, keys));
+        invalidate(columns, keys);
 
         return this;
     }
 
-    public SQLTable<T> update(SQLKey<?> key, SQLKey<?> value) {
-        return update(key.getColumn().getName(), key.getKey(), value.getColumn().getName(), value.getKey());
+    public BatchResult removeAll(String column, Collection<?> keys) {
+        return removeAll(column, keys, batchSize);
     }
 
-    public SQLTable<T> update(SQLColumn checkColumn, Object key, SQLColumn valueColumn, Object value) {
-        return update(checkColumn.getName(), key, valueColumn.getName(), value);
+    public BatchResult removeAll(String column, Collection<?> keys, int chunkSize) {
+        flushPending();
+
+        BatchResult result = executeBatch("removeAll", removeWhereQuery(column), keys, (prep, key) -> bind(prep, 1, column, key),
+                key -> changedKey(column, key), chunkSize);
+
+        keys.forEach(key -> invalidate(column, key));
+
+        return result;
+    }
+
+    public SQLTable<T> update(SQLKey<?> key, SQLKey<?> value) {
+        return update(key.getColumn().getName(), key.getKey(), value.getColumn().getName(), value.getKey());
+    }
+
+    public SQLTable<T> update(SQLColumn checkColumn, Object key, SQLColumn valueColumn, Object value) {
+        return update(checkColumn.getName(), key, valueColumn.getName(), value);
     }
 
     public SQLTable<T> update(String checkColumn, Object key, String valueColumn, Object value) {
+        WriteBehindBuffer buffer = this.writeBehind;
+
+        if (buffer != null) {
+            Transaction tx = getSql().getTransaction();
+
+            if (tx == null) {
+                buffer.put(checkColumn, key, valueColumn, value);
+                invalidate(valueColumn, checkColumn, key);
+                return this;
+            }
+
+            buffer.supersede(tx, checkColumn, key, valueColumn);
+        }
+
         if (!getSql().getDataSource().isRunning())
             return this;
 
-        String query = String.format(UPDATE, tableName, valueColumn, setEscaped(value), checkColumn, setEscaped(key));
+        executeUpdate("update", updateWhereQuery(valueColumn, checkColumn), prep -> {
+            bind(prep, 1, valueColumn, value);
+            bind(prep, 2, checkColumn, key);
+        }, isPrimaryKey(valueColumn) ? ChangeLog.ALL : changedKey(checkColumn, key));
+        invalidate(valueColumn, checkColumn, key);
 
-        try (Connection con = getSql().getDataSource().getConnection()) {
-            PreparedStatement prep = con.prepareStatement(query);
-            prep.closeOnCompletion();
-            prep.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
         return this;
     }
 
+    public BatchResult updateAll(String checkColumn, String valueColumn, Map<?, ?> values) {
+        return updateAll(checkColumn, valueColumn, values, batchSize);
+    }
+
+    public BatchResult updateAll(String checkColumn, String valueColumn, Map<?, ?> values, int chunkSize) {
+        flushPending();
+
+        return writeAll(checkColumn, valueColumn, values, chunkSize);
+    }
+
+    BatchResult writeAll(String checkColumn, String valueColumn, Map<?, ?> values) {
+        return writeAll(checkColumn, valueColumn, values, batchSize);
+    }
+
+    private BatchResult writeAll(String checkColumn, String valueColumn, Map<?, ?> values, int chunkSize) {
+        BatchResult result = executeBatch("updateAll", updateWhereQuery(valueColumn, checkColumn), values.entrySet(), (prep, entry) -> {
+            bind(prep, 1, valueColumn, entry.getValue());
+            bind(prep, 2, checkColumn, entry.getKey());
+        }, entry -> isPrimaryKey(valueColumn) ? ChangeLog.ALL : changedKey(checkColumn, entry.getKey()), chunkSize);
+
+        values.keySet().forEach(key -> invalidate(valueColumn, checkColumn, key));
+
+        return result;
+    }
+
     public SQLTable<T> update(SQLKey<?>[] keys, SQLKey<?> value) {
         return update(Arrays.stream(keys).map(SQLKey::getColumn).toArray(SQLColumn[]::new),
                 Arrays.stream(keys).map(SQLKey::getKey).toArray(), value.getColumn(), value.getKey());
@@ -397,9 +888,18 @@ public class SQLTable<T> {
         if (whereColumns.length != whereKeys.length || !getSql().getDataSource().isRunning())
             return this;
 
-        String query = String.format(UPDATE_WHERE, tableName, updateColumn, setEscaped(updateValue), buildMultipleWhere(whereColumns, whereKeys));
+        flushPending();
+        executeUpdate("update", updateWhereQuery(updateColumn, whereColumns), prep -> {
+            bind(prep, 1, updateColumn, updateValue);
+            bind(prep, 2, whereColumns, whereKeys);
+        }, isPrimaryKey(updateColumn) ? ChangeLog.ALL : changedKey(whereColumns, whereKeys));
+
+        if (isPrimaryKey(updateColumn))
+            invalidateAll();
+        else
+            invalidate(whereColumns, whereKeys);
 
-        return executeQueryUpdate(query);
+        return this;
     }
 
     public boolean contains(SQLKey<?> key) {
@@ -411,23 +911,17 @@ public class SQLTable<T> {
     }
 
     public boolean contains(String column, Object key) {
-        if (!getSql().getDataSource().isRunning())
-            return false;
-
-        String query = String.format(SELECT_WHERE.replace("*", column), tableName, column, setEscaped(key));
+        flushPending();
 
-        try (Connection con = getSql().getDataSource().getConnection()) {
-            PreparedStatement prepstate = con.prepareStatement(query);
-            prepstate.closeOnCompletion();
+        EntityCache<T> cache = activeCache();
 
-            ResultSet rs = prepstate.executeQuery();
+        if (cache != null && isPrimaryKey(column) && cache.get(key) != null)
+            return true;
 
-            return rs != null && rs.next();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        if (!getSql().getDataSource().isRunning())
+            return false;
 
-        return false;
+        return executeQuery("contains", selectColumnWhereQuery(column, column), prep -> bind(prep, 1, column, key), ResultSet::next, false);
     }
 
     public boolean contains(SQLKey<?>... keys) {
@@ -443,33 +937,87 @@ public class SQLTable<T> {
         if (columns.length != keys.length || !getSql().getDataSource().isRunning())
             return false;
 
-        String query = buildMultipleWhereQuery(columns, keys);
+        return executeQuery("contains", selectWhereQuery(columns), prep -> bind(prep, 1, columns, keys), ResultSet::next, false);
+    }
 
-        try (Connection con = getSql().getDataSource().getConnection()) {
-            PreparedStatement prepstate = con.prepareStatement(query);
-            prepstate.closeOnCompletion();
+    public boolean contains(T data) {
+        if (primaryKey != null && mapsEntity(data)) {
+            try {
+                return contains(primaryKey.getName(), entityMapper.column(primaryKey.getName()).get(data));
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
 
-            ResultSet rs = prepstate.executeQuery();
+        if (!mapsEntity(data))
+            return contains(getSqlColumns(), demap(data));
 
-            return rs != null && rs.next();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        if (!getSql().getDataSource().isRunning())
+            return false;
 
-        return false;
+        return executeQuery("contains", selectWhereQuery(columnNames), prep -> bindEntity(prep, 1, data), ResultSet::next, false);
     }
 
-    public boolean contains(T data) {
-        return contains(getSqlColumns(), demap(data));
+    /**
+     * Rewrites UUID, Instant and enum values still stored in the old JSON envelope into their native text
+     * form, so equality lookups on those columns match them again. Rows in the old form stay readable
+     * without this; it is an explicit one-off step because it scans and rewrites the table, and processes
+     * that still expect the old format cannot read the rewritten values.
+     *
+     * @return the number of distinct stored values that were rewritten
+     */
+    public int migrateLegacyValues() {
+        if (!getSql().getDataSource().isRunning())
+            return 0;
+
+        int migrated = 0;
+
+        for (String column : columnNames) {
+            ColumnCodec<Object> codec = codecs.get(column);
+
+            if (!ColumnCodecs.readsLegacyJson(codec))
+                continue;
+
+            Map<String, String> rewrites = executeQuery("migrate", template(SELECT_LEGACY, () -> String.format(SELECT_LEGACY,
+                    dialect.quote(column), quotedName, dialect.quote(column)), column), rs -> {
+                Map<String, String> values = new LinkedHashMap<>();
+
+                while (rs.next()) {
+                    String stored = rs.getString(1);
+                    String converted = ColumnCodecs.migrateLegacyJson(codec, stored);
+
+                    if (converted != null)
+                        values.put(stored, converted);
+                }
+
+                return values;
+            }, Collections.emptyMap());
+
+            if (rewrites.isEmpty())
+                continue;
+
+            BatchResult result = executeBatch("migrate", updateWhereQuery(column, column), rewrites.entrySet(), (prep, entry) -> {
+                prep.setString(1, entry.getValue());
+                prep.setString(2, entry.getKey());
+            }, entry -> ChangeLog.ALL, batchSize);
+
+            if (result.isCommitted())
+                migrated += result.getAffectedRows();
+        }
+
+        if (migrated > 0)
+            invalidateAll();
+
+        return migrated;
     }
 
     public SQLTable<T> empty() {
         if (!getSql().getDataSource().isRunning())
             return null;
 
-        String query = String.format(DELETE, tableName);
-
-        eUpdate(query);
+        flushPending();
+        executeUpdate("empty", template(DELETE, () -> String.format(DELETE, quotedName)), ChangeLog.ALL);
+        invalidateAll();
         return this;
     }
 
@@ -482,6 +1030,18 @@ public class SQLTable<T> {
     }
 
     public Object[] demap(T data) {
+        return Arrays.stream(values(data)).filter(Objects::nonNull).toArray();
+    }
+
+    private Object[] values(T data) {
+        if (mapsEntity(data)) {
+            try {
+                return entityMapper.values(data);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+
         return this.sql.getColumnFields(data.getClass()).map(saveField -> {
             try {
                 return saveField.get(data);
@@ -489,81 +1049,645 @@ public class SQLTable<T> {
                 e.printStackTrace();
             }
             return null;
-        }).filter(Objects::nonNull).toArray();
+        }).toArray();
     }
 
-    private String buildMultipleWhereQuery(String[] columns, Object... keys) {
-        return String.format(SELECT_WHERE_MULTIPLE, tableName, buildMultipleWhere(columns, keys));
+    // Null fields stay in place and are bound as NULL; only rows whose fields don't line up with the columns are rejected.
+    private List<Object[]> rows(Collection<T> data) {
+        List<Object[]> rows = new ArrayList<>(data.size());
+
+        for (T o : data) {
+            Object[] values = values(o);
+
+            if (values.length == columnNames.length)
+                rows.add(values);
+        }
+
+        return rows;
     }
 
-    private String buildMultipleWhere(String[] columns, Object... keys) {
-        StringBuilder where = new StringBuilder();
+    private void flushPending() {
+        WriteBehindBuffer buffer = this.writeBehind;
 
-        for (int i = 0; i < columns.length; i++)
-            where.append(columns[i]).append(" = ").append(setEscaped(keys[i])).append(" AND ");
+        if (buffer != null && !buffer.isEmpty())
+            buffer.flush();
+    }
 
-        where = where.reverse().replace(0, 4, "").reverse();
+    private EntityCache<T> activeCache() {
+        return getSql().getTransaction() == null ? cache : null;
+    }
 
-        return where.toString();
+    private boolean isPrimaryKey(String... columns) {
+        return primaryKey != null && columns.length == 1 && primaryKey.getName().equals(columns[0]);
     }
 
-    private SQLTable<T> executeQueryUpdate(String query) {
-        try (Connection con = getSql().getDataSource().getConnection()) {
-            PreparedStatement prep = con.prepareStatement(query);
-            prep.closeOnCompletion();
-            prep.executeUpdate();
+    private void cachePut(T data) {
+        EntityCache<T> cache = this.cache;
+        ChangeTracker<T> tracker = this.tracker;
+
+        if (cache == null && tracker == null)
+            return;
+
+        try {
+            Object key = entityMapper.column(primaryKey.getName()).get(data);
+
+            if (cache != null && getSql().getTransaction() != null)
+                cache.invalidate(key);
+            else if (cache != null)
+                cache.put(key, data);
+            if (tracker != null)
+                tracker.invalidate(key);
         } catch (SQLException e) {
+            invalidateAll();
             e.printStackTrace();
         }
+    }
 
-        return this;
+    private void invalidate(String valueColumn, String checkColumn, Object key) {
+        if (isPrimaryKey(valueColumn))
+            invalidateAll();
+        else
+            invalidate(checkColumn, key);
+    }
+
+    private void invalidate(String column, Object key) {
+        invalidate(new String[]{column}, key);
     }
 
-    private <G> G getJson(String rs) {
-        return (G) JSON.fromJsonTree(JsonHelper.gson(), rs);
+    private void invalidate(String[] columns, Object... keys) {
+        EntityCache<T> cache = this.cache;
+        ChangeTracker<T> tracker = this.tracker;
+
+        if (!isPrimaryKey(columns)) {
+            invalidateAll();
+            return;
+        }
+
+        if (cache != null)
+            cache.invalidate(keys[0]);
+        if (tracker != null)
+            tracker.invalidate(keys[0]);
     }
 
-    private String setEscaped(Object o) {
-        StringBuilder str = new StringBuilder(set(o));
+    void invalidateLogged(String key) {
+        Object value = key == null || primaryKey == null ? null
+                : ChangeLog.parseKey(codecs.getOrDefault(primaryKey.getName(), ColumnCodecs.JSON).getType(), key);
 
-        if (str.toString().startsWith("\"") && str.toString().endsWith("\""))
-            return "\'" + str.replace(0, 1, "").reverse().replace(0, 1, "").reverse().toString()
-                    .replace("\"", "\\\"") + "\'";
+        if (value == null)
+            invalidateAll();
+        else
+            invalidate(primaryKey.getName(), value);
+    }
 
-        return "\'" + str.toString() + "\'";
+    void invalidateAll() {
+        EntityCache<T> cache = this.cache;
+        ChangeTracker<T> tracker = this.tracker;
+
+        if (cache != null)
+            cache.invalidateAll();
+        if (tracker != null)
+            tracker.invalidateAll();
+    }
+
+    private Object changedKey(String column, Object value) {
+        return isPrimaryKey(column) ? value : ChangeLog.ALL;
     }
 
-    private String set(Object o) {
-        return JSON.toJsonTreeString(JsonHelper.gson(), o);
+    private Object changedKey(String[] columns, Object[] values) {
+        int key = primaryKey == null ? -1 : Arrays.asList(columns).indexOf(primaryKey.getName());
+
+        return key < 0 || key >= values.length ? ChangeLog.ALL : values[key];
     }
 
-    private void eUpdate(String query) {
-        try (Connection con = getSql().getDataSource().getConnection()) {
-            PreparedStatement prep = con.prepareStatement(query);
-            prep.closeOnCompletion();
-            prep.executeUpdate();
+    private Object changedKey(T data) {
+        if (primaryKey == null || !mapsEntity(data))
+            return ChangeLog.ALL;
+
+        try {
+            return entityMapper.column(primaryKey.getName()).get(data);
         } catch (SQLException e) {
-            e.printStackTrace();
+            return ChangeLog.ALL;
         }
     }
 
-    private List<?> groupTo(ResultSet rs) {
-        if (rs == null)
-            return null;
+    private boolean mapsEntity(T data) {
+        return entityMapper != null && entityMapper.getType() == data.getClass();
+    }
+
+    private String selectAllQuery() {
+        return template(SELECT_ALL, () -> String.format(SELECT_ALL, tableInfo, quotedName));
+    }
+
+    private String insertQuery(String... columns) {
+        return template(INSERT, () -> dialect.insert(tableName, columns), columns);
+    }
+
+    private String selectInQuery(String column, int size) {
+        return template(SELECT_IN, () -> String.format(SELECT_IN, tableInfo, quotedName, dialect.quote(column),
+                String.join(",", Collections.nCopies(size, "?"))), column, String.valueOf(size));
+    }
+
+    private String pageQuery(String orderColumn) {
+        return template(PAGE, () -> dialect.limit(String.format(PAGE, tableInfo, quotedName, dialect.quote(orderColumn))), orderColumn);
+    }
+
+    private String pageAfterQuery(String orderColumn) {
+        return template(PAGE_AFTER, () -> dialect.limit(String.format(PAGE_AFTER, tableInfo, quotedName,
+                dialect.quote(orderColumn), dialect.quote(orderColumn))), orderColumn);
+    }
+
+    private String upsertQuery(String... columns) {
+        return template(UPSERT, () -> dialect.upsert(tableName, columns, primaryKey.getName()), columns);
+    }
+
+    private String updateColumnsQuery(String... columns) {
+        return template(UPDATE_COLUMNS, () -> String.format(UPDATE_COLUMNS, quotedName,
+                Arrays.stream(columns).map(column -> dialect.quote(column) + " = ?").collect(Collectors.joining(",")),
+                dialect.quote(primaryKey.getName())), columns);
+    }
+
+    private String insertIgnoreQuery(String... columns) {
+        return template(INSERT_IGNORE, () -> dialect.insertIgnore(tableName, columns, primaryKey.getName()), columns);
+    }
+
+    private void requirePrimaryKey() {
+        if (primaryKey == null)
+            throw new IllegalStateException("Table " + tableName + " has no PRIMARY KEY column");
+    }
+
+    private String selectWhereQuery(String... columns) {
+        return template(SELECT_WHERE, () -> String.format(SELECT_WHERE, tableInfo, quotedName, buildMultipleWhere(columns)), columns);
+    }
+
+    private String selectColumnWhereQuery(String column, String... columns) {
+        return template(SELECT_COLUMN_WHERE, () -> String.format(SELECT_COLUMN_WHERE, dialect.quote(column), quotedName,
+                buildMultipleWhere(columns)), prepend(column, columns));
+    }
+
+    private String removeWhereQuery(String... columns) {
+        return template(REMOVE_WHERE, () -> String.format(REMOVE_WHERE, quotedName, buildMultipleWhere(columns)), columns);
+    }
+
+    private String updateWhereQuery(String updateColumn, String... columns) {
+        return template(UPDATE_WHERE, () -> String.format(UPDATE_WHERE, quotedName, dialect.quote(updateColumn),
+                buildMultipleWhere(columns)), prepend(updateColumn, columns));
+    }
+
+    String template(String shape, Supplier<String> builder, String... columns) {
+        Map<List<String>, String> shapes = templates.get(shape);
+
+        if (shapes == null)
+            shapes = templates.computeIfAbsent(shape, s -> new ConcurrentHashMap<>());
+
+        List<String> key = Arrays.asList(columns);
+        String query = shapes.get(key);
+
+        return query != null ? query : shapes.computeIfAbsent(key, k -> builder.get());
+    }
+
+    private String buildMultipleWhere(String[] columns) {
+        StringBuilder where = new StringBuilder();
+
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0)
+                where.append(" AND ");
+
+            where.append(dialect.quote(columns[i])).append(" = ?");
+        }
+
+        return where.toString();
+    }
+
+    private String[] prepend(String first, String[] rest) {
+        String[] all = new String[rest.length + 1];
+        all[0] = first;
+        System.arraycopy(rest, 0, all, 1, rest.length);
+        return all;
+    }
+
+    private int executeUpdate(String operation, String query, Object changed) {
+        return executeUpdate(operation, query, prep -> {
+        }, changed);
+    }
+
+    private int executeUpdate(String operation, String query, SQLConsumer<PreparedStatement> binder, Object changed) {
+        SQLMetrics metrics = getSql().getMetrics();
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        Transaction tx = getSql().getTransaction();
+        ChangeLog changeLog = getSql().getChangeLog();
+        int rows = 0;
+        boolean success = false;
+
+        try {
+            if (tx != null) {
+                tx.touch(this);
+                rows = executeUpdate(tx.prepare(query), binder);
+
+                if (changeLog != null && rows > 0)
+                    changeLog.append(tx.prepare(changeLog.getAppendQuery()), tableName, Collections.singleton(changed));
+            } else if (changeLog == null) {
+                try (Connection con = checkout(metrics, operation, start);
+                     PreparedStatement prep = con.prepareStatement(query)) {
+                    rows = executeUpdate(prep, binder);
+                }
+            } else {
+                try (Connection con = checkout(metrics, operation, start)) {
+                    boolean autoCommit = con.getAutoCommit();
+                    con.setAutoCommit(false);
+
+                    try (PreparedStatement prep = con.prepareStatement(query)) {
+                        rows = executeUpdate(prep, binder);
+
+                        if (rows > 0)
+                            appendChanges(con, changeLog, Collections.singleton(changed));
+
+                        con.commit();
+                    } catch (SQLException e) {
+                        rows = 0;
+                        con.rollback();
+                        throw e;
+                    } finally {
+                        con.setAutoCommit(autoCommit);
+                    }
+                }
+            }
+
+            success = true;
+        } catch (SQLException e) {
+            failed(tx, e);
+        } finally {
+            record(metrics, operation, start, success, 0, rows);
+        }
+
+        return rows;
+    }
+
+    private int executeUpdate(PreparedStatement prep, SQLConsumer<PreparedStatement> binder) throws SQLException {
+        binder.accept(prep);
+        return prep.executeUpdate();
+    }
+
+    private <R> R executeQuery(String operation, String query, SQLFunction<ResultSet, R> handler, R fallback) {
+        return executeQuery(operation, query, prep -> {
+        }, handler, fallback);
+    }
+
+    <R> R executeQuery(String operation, String query, SQLConsumer<PreparedStatement> binder, SQLFunction<ResultSet, R> handler, R fallback) {
+        flushPending();
+
+        SQLMetrics metrics = getSql().getMetrics();
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        Transaction tx = getSql().getTransaction();
+        R result = fallback;
+        boolean success = false;
 
         try {
-            if (rs.next()) {
-                List<?> rowObjects = new LinkedList<>();
+            if (tx != null) {
+                result = executeQuery(tx.prepare(query), binder, handler);
+            } else {
+                try (Connection con = checkout(metrics, operation, start);
+                     PreparedStatement prep = con.prepareStatement(query)) {
+                    result = executeQuery(prep, binder, handler);
+                }
+            }
+
+            success = true;
+        } catch (SQLException e) {
+            failed(tx, e);
+        } finally {
+            record(metrics, operation, start, success, success ? rowCount(result) : 0, 0);
+        }
+
+        return result;
+    }
+
+    private <R> R executeQuery(PreparedStatement prep, SQLConsumer<PreparedStatement> binder, SQLFunction<ResultSet, R> handler) throws SQLException {
+        binder.accept(prep);
+
+        try (ResultSet rs = prep.executeQuery()) {
+            return handler.apply(rs);
+        }
+    }
+
+    private <R> BatchResult executeBatch(String operation, String query, Collection<R> rows, SQLBinder<R> binder,
+                                         Function<R, Object> changed, int chunkSize) {
+        BatchResult result = new BatchResult();
+
+        if (rows.isEmpty() || !getSql().getDataSource().isRunning())
+            return result;
+
+        SQLMetrics metrics = getSql().getMetrics();
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        Transaction tx = getSql().getTransaction();
+        ChangeLog changeLog = getSql().getChangeLog();
+
+        if (tx != null) {
+            tx.touch(this);
+
+            try {
+                addBatches(result, tx.prepare(query), rows, binder, chunkSize);
+
+                if (changeLog != null)
+                    changeLog.append(tx.prepare(changeLog.getAppendQuery()), tableName, changedKeys(rows, changed));
+
+                result.setCommitted(true);
+            } catch (SQLException e) {
+                failed(tx, e);
+            }
+
+            record(metrics, operation, start, result.isCommitted(), 0, result.getAffectedRows());
+            return result;
+        }
+
+        try (Connection con = checkout(metrics, operation, start)) {
+            boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+
+            try (PreparedStatement prep = con.prepareStatement(query)) {
+                addBatches(result, prep, rows, binder, chunkSize);
 
-                for (SQLColumn c : this.getSqlColumns())
-                    rowObjects.add(getJson(rs.getString(c.getName())));
+                if (changeLog != null)
+                    appendChanges(con, changeLog, changedKeys(rows, changed));
 
-                return rowObjects;
+                con.commit();
+                result.setCommitted(true);
+            } catch (SQLException e) {
+                con.rollback();
+                e.printStackTrace();
+            } finally {
+                con.setAutoCommit(autoCommit);
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
 
+        record(metrics, operation, start, result.isCommitted(), 0, result.isCommitted() ? result.getAffectedRows() : 0);
+        return result;
+    }
+
+    private <R> void addBatches(BatchResult result, PreparedStatement prep, Collection<R> rows, SQLBinder<R> binder, int chunkSize) throws SQLException {
+        int pending = 0;
+
+        for (R row : rows) {
+            binder.bind(prep, row);
+            prep.addBatch();
+
+            if (++pending >= chunkSize) {
+                result.addChunk(prep.executeBatch());
+                pending = 0;
+            }
+        }
+
+        if (pending > 0)
+            result.addChunk(prep.executeBatch());
+    }
+
+    private void appendChanges(Connection con, ChangeLog changeLog, Collection<?> keys) throws SQLException {
+        try (PreparedStatement prep = con.prepareStatement(changeLog.getAppendQuery())) {
+            changeLog.append(prep, tableName, keys);
+        }
+    }
+
+    private <R> List<Object> changedKeys(Collection<R> rows, Function<R, Object> changed) {
+        List<Object> keys = new ArrayList<>(rows.size());
+
+        for (R row : rows)
+            keys.add(changed.apply(row));
+
+        return keys;
+    }
+
+    private Connection checkout(SQLMetrics metrics, String operation, long start) throws SQLException {
+        Connection con = getSql().getDataSource().getConnection();
+
+        if (metrics.isEnabled())
+            metrics.recordCheckout(tableName, operation, System.nanoTime() - start);
+
+        return con;
+    }
+
+    private void record(SQLMetrics metrics, String operation, long start, boolean success, long read, long written) {
+        if (!metrics.isEnabled())
+            return;
+
+        metrics.recordOperation(tableName, operation, System.nanoTime() - start, success);
+
+        if (read > 0 || written > 0)
+            metrics.recordRows(tableName, operation, read, written);
+    }
+
+    private static long rowCount(Object result) {
+        if (result instanceof Collection)
+            return ((Collection<?>) result).size();
+        if (result instanceof Page)
+            return ((Page<?>) result).size();
+        if (result instanceof Projection)
+            return ((Projection) result).getRowCount();
+        if (result instanceof Boolean)
+            return (Boolean) result ? 1 : 0;
+
+        return result == null ? 0 : 1;
+    }
+
+    private void failed(Transaction tx, SQLException e) {
+        if (tx != null)
+            tx.failed(e);
+
+        e.printStackTrace();
+    }
+
+    private int bindEntity(PreparedStatement prep, int index, T entity) throws SQLException {
+        SQLMetrics metrics = getSql().getMetrics();
+
+        if (!metrics.isEnabled())
+            return entityMapper.bind(prep, index, entity);
+
+        for (EntityMapper.FieldMapping field : entityMapper.getFields()) {
+            Object value = field.get(entity);
+
+            if (value != null && field.getCodec() == ColumnCodecs.JSON) {
+                String json = ColumnCodecs.toJson(value);
+
+                prep.setString(index++, json);
+                metrics.recordEncoded(tableName, field.getColumn(), ColumnCodecs.utf8Length(json));
+            } else if (value != null && field.getCodec() instanceof BinaryFormat.Codec) {
+                byte[] bytes = ((BinaryFormat.Codec) field.getCodec()).encode(value);
+
+                prep.setBytes(index++, bytes);
+                metrics.recordEncoded(tableName, field.getColumn(), bytes.length);
+            } else {
+                field.write(prep, index++, value);
+            }
+        }
+
+        return index;
+    }
+
+    private int bind(PreparedStatement prep, int index, String[] columns, Object[] values) throws SQLException {
+        for (int i = 0; i < columns.length; i++)
+            bind(prep, index++, columns[i], values[i]);
+
+        return index;
+    }
+
+    void bind(PreparedStatement prep, int index, String column, Object value) throws SQLException {
+        ColumnCodec<Object> codec = codecs.getOrDefault(column, ColumnCodecs.JSON);
+
+        if (value == null) {
+            prep.setNull(index, Types.VARCHAR);
+            return;
+        }
+
+        SQLMetrics metrics = getSql().getMetrics();
+
+        if (codec instanceof BinaryFormat.Codec && metrics.isEnabled()) {
+            byte[] bytes = ((BinaryFormat.Codec) codec).encode(value);
+
+            prep.setBytes(index, bytes);
+            metrics.recordEncoded(tableName, column, bytes.length);
+            return;
+        }
+
+        if (codec != ColumnCodecs.JSON && codec.accepts(value)) {
+            codec.write(prep, index, value);
+            return;
+        }
+
+        if (!metrics.isEnabled()) {
+            ColumnCodecs.JSON.write(prep, index, value);
+            return;
+        }
+
+        String json = ColumnCodecs.toJson(value);
+
+        prep.setString(index, json);
+        metrics.recordEncoded(tableName, column, ColumnCodecs.utf8Length(json));
+    }
+
+    @SuppressWarnings("unchecked") // callers pick C to match the column's codec, like getObject
+    <C> C readValue(ResultSet rs, int index, String column) throws SQLException {
+        return (C) codecs.getOrDefault(column, ColumnCodecs.JSON).read(rs, index);
+    }
+
+    private <R> Stream<R> streamQuery(String operation, String query, SQLFunction<ResultSet, R> rowMapper) {
+        return streamQuery(operation, query, prep -> {
+        }, rowMapper);
+    }
+
+    <R> Stream<R> streamQuery(String operation, String query, SQLConsumer<PreparedStatement> binder, SQLFunction<ResultSet, R> rowMapper) {
+        if (!getSql().getDataSource().isRunning())
+            return Stream.empty();
+
+        flushPending();
+
+        SQLMetrics metrics = getSql().getMetrics();
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        Transaction tx = getSql().getTransaction();
+        Connection con = null;
+        PreparedStatement prep = null;
+        ResultSet rs = null;
+
+        try {
+            if (tx == null) {
+                con = checkout(metrics, operation, start);
+                con.setAutoCommit(false);
+            }
+
+            prep = (tx == null ? con : tx.getConnection()).prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            prep.setFetchSize(fetchSize);
+            binder.accept(prep);
+            rs = prep.executeQuery();
+        } catch (SQLException e) {
+            failed(tx, e);
+            closeQuietly(rs, prep, con);
+            record(metrics, operation, start, false, 0, 0);
+            return Stream.empty();
+        }
+
+        ResultSet cursor = rs;
+        AutoCloseable[] resources = {rs, prep, con};
+        long[] read = new long[1];
+        boolean[] success = {true};
+
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<R>(Long.MAX_VALUE, Spliterator.ORDERED) {
+            @Override
+            public boolean tryAdvance(Consumer<? super R> action) {
+                try {
+                    if (!cursor.next())
+                        return false;
+
+                    action.accept(rowMapper.apply(cursor));
+                    read[0]++;
+                    return true;
+                } catch (SQLException e) {
+                    success[0] = false;
+                    e.printStackTrace();
+                    return false;
+                }
+            }
+        }, false).onClose(() -> {
+            closeQuietly(resources);
+            record(metrics, operation, start, success[0], read[0], 0);
+        });
+    }
+
+    private void closeQuietly(AutoCloseable... resources) {
+        for (AutoCloseable resource : resources) {
+            if (resource == null)
+                continue;
+
+            try {
+                resource.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private List<?> groupTo(ResultSet rs) throws SQLException {
+        if (rs.next())
+            return readRow(rs);
+
         return new LinkedList<>();
     }
+
+    T readEntity(ResultSet rs) throws SQLException {
+        if (mapper != null)
+            return mapper.apply(readRow(rs));
+
+        T entity = entityMapper.read(rs);
+        ChangeTracker<T> tracker = this.tracker;
+
+        if (tracker != null && entity != null)
+            tracker.loaded(rs, entity);
+
+        return entity;
+    }
+
+    Projection emptyProjection(String[] columns) {
+        return Projection.empty(columns, columnCodecs(columns));
+    }
+
+    Projection readProjection(ResultSet rs, String[] columns) throws SQLException {
+        return Projection.read(rs, columns, columnCodecs(columns), fetchSize);
+    }
+
+    @SuppressWarnings("unchecked") // generic array creation
+    private ColumnCodec<Object>[] columnCodecs(String[] columns) {
+        ColumnCodec<Object>[] columnCodecs = (ColumnCodec<Object>[]) new ColumnCodec<?>[columns.length];
+
+        for (int i = 0; i < columns.length; i++)
+            columnCodecs[i] = codecs.getOrDefault(columns[i], ColumnCodecs.JSON);
+
+        return columnCodecs;
+    }
+
+    private List<?> readRow(ResultSet rs) throws SQLException {
+        List<Object> rowObjects = new ArrayList<>(sqlColumns.length);
+
+        for (int i = 0; i < columnNames.length; i++)
+            rowObjects.add(readValue(rs, i + 1, columnNames[i]));
+
+        return rowObjects;
+    }
 }
@@ -0,0 +1,19 @@
+package io.github.whoisalphahelix.sql;
+
+public class SQLiteDialect implements Dialect {
+
+    @Override
+    public String getName() {
+        return "sqlite";
+    }
+
+    @Override
+    public String identityColumnType() {
+        return "INTEGER PRIMARY KEY AUTOINCREMENT";
+    }
+
+    @Override
+    public int getMaxParameters() {
+        return 999;
+    }
+}
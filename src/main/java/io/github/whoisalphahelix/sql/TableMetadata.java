@@ -0,0 +1,115 @@
+package io.github.whoisalphahelix.sql;
+
+import io.github.whoisalphahelix.sql.annotations.Column;
+import io.github.whoisalphahelix.sql.annotations.Id;
+import io.github.whoisalphahelix.sql.annotations.Index;
+import io.github.whoisalphahelix.sql.annotations.Table;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Getter
+@ToString(of = {"type", "tableName"})
+public final class TableMetadata<T> {
+
+    private final Class<T> type;
+    private final String tableName;
+    private final List<Field> fields;
+    private final List<String> columnNames;
+    private final List<SQLColumn> columns;
+    private final List<String> primaryKeyColumns;
+    private final List<SQLIndex> indexes;
+    private final EntityMapper<T> entityMapper;
+
+    TableMetadata(SQL sql, Class<T> type) {
+        Table tab = type.getAnnotation(Table.class);
+
+        this.type = type;
+        this.tableName = tab == null ? null : (tab.value().isEmpty() ? type.getSimpleName() : tab.value());
+
+        List<Field> fields = new ArrayList<>();
+        List<String> columnNames = new ArrayList<>();
+        List<SQLColumn> columns = new ArrayList<>();
+        List<ColumnCodec<Object>> codecs = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        List<SQLIndex> indexes = new ArrayList<>();
+
+        for (Class<?> cls = type; cls != null; cls = cls.getSuperclass()) {
+            for (Field field : cls.getDeclaredFields()) {
+                Column c = field.getAnnotation(Column.class);
+
+                if (c == null && !field.isAnnotationPresent(Id.class))
+                    continue;
+
+                field.setAccessible(true);
+
+                String name = sql.getColumnName(field);
+                boolean binary = c != null && c.binary();
+                String sqlType = c == null || c.type().isEmpty() ? sql.guessSQLColumnType(binary ? byte[].class : field.getType()) : c.type();
+
+                fields.add(field);
+                columnNames.add(name);
+                columns.add(new SQLColumn(name, sqlType, c == null ? new String[0] : c.additionals()));
+                codecs.add(binary ? sql.getCodecs().binary(field.getType()) : sql.getCodecs().codec(field.getType(), sqlType));
+
+                if (field.isAnnotationPresent(Id.class))
+                    ids.add(name);
+
+                for (Index index : field.getAnnotationsByType(Index.class))
+                    indexes.add(new SQLIndex(index.name(), index.unique(), index.columns().length == 0 ? new String[]{name} : index.columns()));
+            }
+        }
+
+        for (Index index : type.getAnnotationsByType(Index.class)) {
+            if (index.columns().length == 0)
+                throw new IllegalArgumentException("@Index on " + type.getName() + " must name its columns");
+
+            indexes.add(new SQLIndex(index.name(), index.unique(), index.columns()));
+        }
+
+        if (ids.size() == 1) {
+            int idx = columnNames.indexOf(ids.get(0));
+            SQLColumn id = columns.get(idx);
+
+            if (!id.isPrimaryKey()) {
+                String[] additionals = id.getAdditional().toArray(new String[id.getAdditional().size() + 1]);
+
+                additionals[additionals.length - 1] = "PRIMARY KEY";
+                columns.set(idx, new SQLColumn(id.getName(), id.getType(), additionals));
+            }
+        } else if (ids.size() > 1 && columns.stream().anyMatch(SQLColumn::isPrimaryKey)) {
+            throw new IllegalArgumentException(type.getName() + " declares both @Id fields and a PRIMARY KEY column");
+        }
+
+        this.primaryKeyColumns = Collections.unmodifiableList(ids.isEmpty()
+                ? columns.stream().filter(SQLColumn::isPrimaryKey).map(SQLColumn::getName).collect(Collectors.toList())
+                : ids);
+        this.indexes = Collections.unmodifiableList(indexes);
+
+        this.fields = Collections.unmodifiableList(fields);
+        this.columnNames = Collections.unmodifiableList(columnNames);
+        this.columns = Collections.unmodifiableList(columns);
+        this.entityMapper = new EntityMapper<>(type, this.fields, this.columnNames, codecs);
+    }
+
+    public SQLColumn[] getColumnArray() {
+        return columns.toArray(new SQLColumn[0]);
+    }
+
+    public SQLIndex[] getIndexArray() {
+        return indexes.toArray(new SQLIndex[0]);
+    }
+
+    public String[] getColumnNameArray() {
+        return columnNames.toArray(new String[0]);
+    }
+
+    public boolean isTable() {
+        return tableName != null;
+    }
+}
@@ -0,0 +1,137 @@
+package io.github.whoisalphahelix.sql;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.*;
+
+@Getter
+public class Transaction {
+
+    private final SQL sql;
+    private final Connection connection;
+    @Getter(AccessLevel.NONE)
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    @Getter(AccessLevel.NONE)
+    private final Set<SQLTable<?>> touched = Collections.newSetFromMap(new IdentityHashMap<>());
+    @Getter(AccessLevel.NONE)
+    private final List<Runnable> rollbackActions = new ArrayList<>();
+    @Getter(AccessLevel.NONE)
+    private final Map<Savepoint, Integer> savepoints = new IdentityHashMap<>();
+    private boolean rollbackOnly;
+    private SQLException failure;
+
+    Transaction(SQL sql, Connection connection) {
+        this.sql = sql;
+        this.connection = connection;
+    }
+
+    public Savepoint savepoint() throws SQLException {
+        return mark(connection.setSavepoint());
+    }
+
+    public Savepoint savepoint(String name) throws SQLException {
+        return mark(connection.setSavepoint(name));
+    }
+
+    public void rollback(Savepoint savepoint) throws SQLException {
+        connection.rollback(savepoint);
+        rolledBack(savepoints.getOrDefault(savepoint, 0));
+    }
+
+    public void release(Savepoint savepoint) throws SQLException {
+        connection.releaseSavepoint(savepoint);
+        savepoints.remove(savepoint);
+    }
+
+    public void setRollbackOnly() {
+        this.rollbackOnly = true;
+    }
+
+    void setRollbackOnly(boolean rollbackOnly) {
+        this.rollbackOnly = rollbackOnly;
+    }
+
+    void failed(SQLException failure) {
+        this.rollbackOnly = true;
+
+        if (this.failure == null)
+            this.failure = failure;
+    }
+
+    void setFailure(SQLException failure) {
+        this.failure = failure;
+    }
+
+    PreparedStatement prepare(String query) throws SQLException {
+        PreparedStatement prep = statements.get(query);
+
+        if (prep == null || prep.isClosed()) {
+            prep = connection.prepareStatement(query);
+            statements.put(query, prep);
+        } else {
+            prep.clearParameters();
+            prep.clearBatch();
+        }
+
+        return prep;
+    }
+
+    void touch(SQLTable<?> table) {
+        touched.add(table);
+    }
+
+    void onRollback(Runnable action) {
+        rollbackActions.add(action);
+    }
+
+    void rolledBack() {
+        rolledBack(0);
+    }
+
+    private void rolledBack(int from) {
+        for (SQLTable<?> table : touched)
+            table.invalidateAll();
+
+        List<Runnable> actions = rollbackActions.subList(from, rollbackActions.size());
+
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+
+        actions.clear();
+    }
+
+    private Savepoint mark(Savepoint savepoint) {
+        savepoints.put(savepoint, rollbackActions.size());
+        return savepoint;
+    }
+
+    void close() {
+        for (PreparedStatement prep : statements.values()) {
+            try {
+                prep.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+
+        statements.clear();
+        touched.clear();
+        rollbackActions.clear();
+        savepoints.clear();
+    }
+
+    @FunctionalInterface
+    public interface Work<R> {
+        R run(Transaction transaction) throws SQLException;
+    }
+}
@@ -0,0 +1,17 @@
+package io.github.whoisalphahelix.sql;
+
+import java.sql.SQLException;
+
+public class TransactionException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    TransactionException(String message, SQLException cause) {
+        super(message, cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
@@ -0,0 +1,237 @@
+package io.github.whoisalphahelix.sql;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class WriteBehindBuffer implements AutoCloseable {
+
+    private final SQLTable<?> table;
+    @Getter
+    private final int maxPending;
+    private final ScheduledExecutorService scheduler;
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile Map<PendingKey, Pending> pending = new ConcurrentHashMap<>();
+    private volatile Map<PendingKey, Pending> draining = Collections.emptyMap();
+
+    WriteBehindBuffer(SQLTable<?> table, int maxPending, Duration flushInterval) {
+        if (maxPending <= 0)
+            throw new IllegalArgumentException("Write-behind maxPending must be positive, got " + maxPending);
+        if (flushInterval.isNegative() || flushInterval.toMillis() < 1)
+            throw new IllegalArgumentException("Write-behind flush interval must be at least 1ms, got " + flushInterval);
+
+        this.table = table;
+        this.maxPending = maxPending;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sql-write-behind-" + table.getTableName());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long interval = flushInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::scheduledFlush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    void put(String checkColumn, Object key, String valueColumn, Object value) {
+        int size;
+
+        swapLock.readLock().lock();
+        try {
+            Map<PendingKey, Pending> current = pending;
+
+            // a coalesced update keeps the position of the first one, later values only replace its value
+            current.merge(new PendingKey(checkColumn, EntityCache.normalize(key), valueColumn),
+                    new Pending(sequence.incrementAndGet(), value), (old, update) -> new Pending(old.sequence, update.value));
+            size = current.size();
+        } finally {
+            swapLock.readLock().unlock();
+        }
+
+        if (size >= maxPending)
+            requestFlush();
+    }
+
+    public int getPendingCount() {
+        return pending.size() + draining.size();
+    }
+
+    // Entries being written by a flush on another thread still count, so a read waits for them via flushLock.
+    public boolean isEmpty() {
+        return pending.isEmpty() && draining.isEmpty();
+    }
+
+    public int flush() {
+        if (table.getSql().getTransaction() != null) {
+            requestFlush();
+            return 0;
+        }
+
+        return drain();
+    }
+
+    // Pending updates belong to every caller, so they are never written on (and rolled back with) a
+    // transaction's connection. Waiting for the scheduler's connection from inside a transaction could stall
+    // on the pool or on the transaction's own locks, so the flush is only handed off.
+    private void requestFlush() {
+        if (!flushQueued.compareAndSet(false, true))
+            return;
+
+        try {
+            scheduler.execute(this::scheduledFlush);
+        } catch (RejectedExecutionException e) {
+            flushQueued.set(false);
+        }
+    }
+
+    void supersede(Transaction tx, String checkColumn, Object key, String valueColumn) {
+        PendingKey pendingKey = new PendingKey(checkColumn, EntityCache.normalize(key), valueColumn);
+        Pending superseded;
+
+        swapLock.readLock().lock();
+        try {
+            superseded = pending.remove(pendingKey);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+
+        if (superseded != null)
+            tx.onRollback(() -> requeue(Collections.singletonList(new AbstractMap.SimpleEntry<>(pendingKey, superseded))));
+    }
+
+    private int drain() {
+        synchronized (flushLock) {
+            flushQueued.set(false);
+
+            Map<PendingKey, Pending> drained;
+
+            swapLock.writeLock().lock();
+            try {
+                if (pending.isEmpty())
+                    return 0;
+
+                drained = pending;
+                draining = drained;
+                pending = new ConcurrentHashMap<>();
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+
+            try {
+                return write(drained);
+            } finally {
+                draining = Collections.emptyMap();
+            }
+        }
+    }
+
+    private int write(Map<PendingKey, Pending> drained) {
+        List<Map.Entry<PendingKey, Pending>> entries = new ArrayList<>(drained.entrySet());
+
+        entries.sort(Comparator.comparingLong(entry -> entry.getValue().sequence));
+
+        int written = 0;
+        boolean blocked = false;
+        RuntimeException failure = null;
+
+        // Consecutive updates of the same column pair are batched; runs are written in the order they were
+        // made, and once one fails every later run is requeued too so nothing overtakes it.
+        for (int start = 0, end; start < entries.size(); start = end) {
+            PendingKey first = entries.get(start).getKey();
+            Map<Object, Object> values = new LinkedHashMap<>();
+
+            for (end = start; end < entries.size() && first.sameColumns(entries.get(end).getKey()); end++)
+                values.put(entries.get(end).getKey().key, entries.get(end).getValue().value);
+
+            List<Map.Entry<PendingKey, Pending>> run = entries.subList(start, end);
+
+            if (blocked) {
+                requeue(run);
+                continue;
+            }
+
+            try {
+                if (table.writeAll(first.checkColumn, first.valueColumn, values).isCommitted()) {
+                    written += values.size();
+                    continue;
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+
+            blocked = true;
+            requeue(run);
+        }
+
+        if (failure != null)
+            throw failure;
+
+        return written;
+    }
+
+    private void scheduledFlush() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (table.getSql().getTransaction() != null) {
+            scheduler.execute(this::scheduledFlush);
+            scheduler.shutdown();
+            return;
+        }
+
+        scheduler.shutdown();
+        drain();
+    }
+
+    private void requeue(List<Map.Entry<PendingKey, Pending>> entries) {
+        swapLock.readLock().lock();
+        try {
+            for (Map.Entry<PendingKey, Pending> entry : entries)
+                pending.putIfAbsent(entry.getKey(), entry.getValue());
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    @EqualsAndHashCode
+    private static final class PendingKey {
+        private final String checkColumn;
+        private final Object key;
+        private final String valueColumn;
+
+        PendingKey(String checkColumn, Object key, String valueColumn) {
+            this.checkColumn = checkColumn;
+            this.key = key;
+            this.valueColumn = valueColumn;
+        }
+
+        boolean sameColumns(PendingKey other) {
+            return checkColumn.equals(other.checkColumn) && valueColumn.equals(other.valueColumn);
+        }
+    }
+
+    private static final class Pending {
+        private final long sequence;
+        private final Object value;
+
+        Pending(long sequence, Object value) {
+            this.sequence = sequence;
+            this.value = value;
+        }
+    }
+}
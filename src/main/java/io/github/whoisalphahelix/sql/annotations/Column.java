@@ -13,5 +13,6 @@ public @interface Column {
 
 	String type() default "";
 	String[] additionals() default {};
+	boolean binary() default false;
 	
 }
@@ -0,0 +1,19 @@
+package io.github.whoisalphahelix.sql.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.TYPE})
+@Repeatable(Indexes.class)
+public @interface Index {
+
+	String name() default "";
+
+	String[] columns() default {};
+	boolean unique() default false;
+	
+}
@@ -20,10 +20,7 @@ public class QuickTest {
         SQL sql = new SQL("org.sqlite.JDBC",
                 "jdbc:sqlite:" + System.getProperty("user.home") + "/tests/sqltest.db");
 
-        SQLTable<PlayerUUID> ids = sql.createTable(PlayerUUID.class, objects ->
-                new PlayerUUID(UUID.fromString(objects.get(0).toString()),
-                        objects.get(1).toString(),
-                        Long.parseLong(objects.get(2).toString())));
+        SQLTable<PlayerUUID> ids = sql.createTable(PlayerUUID.class);
 
         ids.insert(new PlayerUUID(UUID.randomUUID(), "Max", LocalDateTime.now().atZone(ZoneId.systemDefault()).toEpochSecond()));
 
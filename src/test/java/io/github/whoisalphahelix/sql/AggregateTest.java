@@ -0,0 +1,104 @@
+package io.github.whoisalphahelix.sql;
+
+import io.github.whoisalphahelix.sql.annotations.Column;
+import io.github.whoisalphahelix.sql.annotations.Id;
+import io.github.whoisalphahelix.sql.annotations.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+
+public class AggregateTest {
+
+    private SQL sql;
+    private SQLTable<Reading> readings;
+
+    @Before
+    public void open() {
+        sql = new SQL(null, "jdbc:sqlite:file:aggregate" + System.nanoTime() + "?mode=memory&cache=shared");
+        readings = sql.createTable(Reading.class);
+    }
+
+    @After
+    public void close() {
+        sql.close();
+    }
+
+    @Test
+    public void emptyTableAggregates() {
+        assertEquals(0, readings.count());
+        assertEquals(0, readings.count(Condition.gt("amount", 0L)));
+        assertFalse(readings.exists());
+        assertNull(readings.min("amount"));
+        assertNull(readings.max("sensor"));
+        assertEquals(0L, readings.sum("amount"));
+        assertEquals(0D, readings.sum("value"));
+        assertNull(readings.avg("amount"));
+    }
+
+    @Test
+    public void aggregatesOverRows() {
+        readings.insert(new Reading(1, "b", 10, 1.5));
+        readings.insert(new Reading(2, "a", 20, 2.5));
+        readings.insert(new Reading(3, "c", 30, 0.5));
+
+        assertEquals(3, readings.count());
+        assertTrue(readings.exists(Condition.eq("sensor", "a")));
+        assertFalse(readings.exists(Condition.eq("sensor", "z")));
+        assertEquals(10L, readings.<Long>min("amount").longValue());
+        assertEquals("c", readings.max("sensor"));
+        assertEquals(60L, readings.sum("amount"));
+        assertEquals(4.5, readings.sum("value").doubleValue(), 0);
+        assertEquals(20, readings.avg("amount"), 0);
+    }
+
+    @Test
+    public void aggregatesHonourConditions() {
+        readings.insert(new Reading(1, "a", 10, 1));
+        readings.insert(new Reading(2, "a", 20, 2));
+        readings.insert(new Reading(3, "b", 30, 3));
+
+        Query<Reading> a = readings.where(Condition.eq("sensor", "a"));
+
+        assertEquals(2, a.count());
+        assertEquals(30L, a.sum("amount"));
+        assertEquals(20L, readings.where(Condition.eq("sensor", "a")).<Long>max("amount").longValue());
+        assertEquals(0L, readings.where(Condition.eq("sensor", "z")).sum("amount"));
+        assertNull(readings.where(Condition.eq("sensor", "z")).avg("value"));
+    }
+
+    @Test
+    public void pendingWritesAreCounted() {
+        readings.insert(new Reading(1, "a", 10, 1));
+        readings.writeBehind(100, Duration.ofHours(1));
+        readings.update("id", 1L, "amount", 50L);
+
+        assertEquals(50L, readings.sum("amount"));
+        readings.close();
+    }
+
+    @Table("readings")
+    static class Reading {
+        @Id
+        long id;
+        @Column(type = "VARCHAR(255)")
+        String sensor;
+        @Column
+        long amount;
+        @Column
+        double value;
+
+        Reading() {
+        }
+
+        Reading(long id, String sensor, long amount, double value) {
+            this.id = id;
+            this.sensor = sensor;
+            this.amount = amount;
+            this.value = value;
+        }
+    }
+}
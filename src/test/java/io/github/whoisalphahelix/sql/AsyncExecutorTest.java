@@ -0,0 +1,48 @@
+package io.github.whoisalphahelix.sql;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AsyncExecutorTest {
+
+    private SQL sql;
+
+    @Before
+    public void open() {
+        sql = new SQL(null, "jdbc:sqlite:file:async" + System.nanoTime() + "?mode=memory&cache=shared");
+    }
+
+    @After
+    public void close() {
+        sql.close();
+    }
+
+    @Test
+    public void concurrencyIsBoundedByPoolSize() throws Exception {
+        ExecutorService executor = sql.getAsyncExecutor();
+        AtomicInteger running = new AtomicInteger(), peak = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < sql.getDataSource().getMaximumPoolSize() * 5; i++)
+            futures.add(executor.submit(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(20);
+                return running.decrementAndGet();
+            }));
+
+        for (Future<?> future : futures)
+            future.get();
+
+        assertTrue(peak.get() > 0);
+        assertTrue(peak.get() <= sql.getDataSource().getMaximumPoolSize());
+    }
+}
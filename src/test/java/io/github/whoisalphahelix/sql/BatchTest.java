@@ -0,0 +1,102 @@
+package io.github.whoisalphahelix.sql;
+
+import io.github.whoisalphahelix.sql.annotations.Column;
+import io.github.whoisalphahelix.sql.annotations.Id;
+import io.github.whoisalphahelix.sql.annotations.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BatchTest {
+
+    private SQL sql;
+    private SQLTable<Person> people;
+
+    @Before
+    public void open() {
+        sql = SQL.builder()
+                .jdbcUrl("jdbc:sqlite:file:batch" + System.nanoTime() + "?mode=memory&cache=shared")
+                .maximumPoolSize(1)
+                .connectionTimeout(Duration.ofSeconds(5))
+                .build();
+
+        people = sql.createTable("people", row -> new Person(((Number) row.get(0)).longValue(), (String) row.get(1)),
+                new SQLColumn("id", "INTEGER", "PRIMARY KEY"), new SQLColumn("name", "VARCHAR(255)"));
+    }
+
+    @After
+    public void close() {
+        sql.close();
+    }
+
+    @Test
+    public void insertAllBindsNullFields() {
+        BatchResult result = people.insertAll(Arrays.asList(new Person(1, "Ann"), new Person(2, null)));
+
+        assertTrue(result.isCommitted());
+        assertEquals(2, result.getAffectedRows());
+        assertEquals(0, result.getRejectedRows());
+
+        List<Person> rows = people.getAll();
+
+        assertEquals(2, rows.size());
+        assertNull(rows.stream().filter(p -> p.id == 2).findFirst().orElseThrow(AssertionError::new).name);
+    }
+
+    @Test
+    public void saveAllBindsNullFields() {
+        people.insertAll(Arrays.asList(new Person(1, "Ann"), new Person(2, "Bob")));
+
+        BatchResult result = people.saveAll(Arrays.asList(new Person(2, null), new Person(3, null)));
+
+        assertTrue(result.isCommitted());
+        assertEquals(0, result.getRejectedRows());
+        assertEquals(3, people.getAll().size());
+        assertTrue(people.getAll().stream().filter(p -> p.id > 1).allMatch(p -> p.name == null));
+    }
+
+    @Test
+    public void mismatchedRowsAreCountedAsRejected() {
+        BatchResult result = people.insertAll(Arrays.asList(new Person(1, "Ann"), new Wide(2, "Bob", 3)));
+
+        assertTrue(result.isCommitted());
+        assertEquals(1, result.getAffectedRows());
+        assertEquals(1, result.getRejectedRows());
+    }
+
+    @Table("people")
+    public static class Person {
+        @Id
+        long id;
+        @Column(type = "VARCHAR(255)")
+        String name;
+
+        public Person() {
+        }
+
+        Person(long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    @Table("wide")
+    public static class Wide extends Person {
+        @Column
+        long extra;
+
+        public Wide() {
+        }
+
+        Wide(long id, String name, long extra) {
+            super(id, name);
+            this.extra = extra;
+        }
+    }
+}
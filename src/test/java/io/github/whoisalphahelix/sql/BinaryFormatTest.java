@@ -0,0 +1,171 @@
+package io.github.whoisalphahelix.sql;
+
+import io.github.whoisalphahelix.sql.annotations.Column;
+import io.github.whoisalphahelix.sql.annotations.Id;
+import io.github.whoisalphahelix.sql.annotations.Table;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class BinaryFormatTest {
+
+    @Test
+    public void scalarsRoundTrip() throws SQLException {
+        BinaryFormat format = new BinaryFormat();
+        Object[] values = {true, false, 0, -1, Integer.MIN_VALUE, Long.MAX_VALUE, (short) -3, (byte) 7, 1.5f,
+                -0.25, 'x', "", "text with \"quotes\" and \u00fc", new BigDecimal("12345.6789")};
+
+        for (Object value : values)
+            assertEquals(value, format.decode(format.encode(value, Object.class), Object.class));
+
+        assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) format.decode(format.encode(new byte[]{1, 2, 3}, Object.class), Object.class));
+        assertNull(format.encode(null, Object.class));
+        assertNull(format.decode(null, Object.class));
+    }
+
+    @Test
+    public void objectsRoundTripByDeclaredRegisteredOrNamedType() throws SQLException {
+        BinaryFormat format = new BinaryFormat();
+        Inventory inventory = inventory(3);
+
+        byte[] declared = format.encode(inventory, Inventory.class);
+        byte[] named = format.encode(inventory, Object.class);
+
+        format.register(7, Inventory.class);
+
+        byte[] registered = format.encode(inventory, Object.class);
+
+        assertTrue(declared.length < registered.length);
+        assertTrue(registered.length < named.length);
+
+        for (byte[] bytes : Arrays.asList(declared, registered, named))
+            assertInventory(inventory, (Inventory) format.decode(bytes, bytes == declared ? Inventory.class : Object.class));
+    }
+
+    @Test
+    public void unknownTypeIdFailsToDecode() {
+        BinaryFormat writer = new BinaryFormat().register(7, Inventory.class);
+        byte[] bytes = writer.encode(inventory(1), Object.class);
+
+        assertThrows(SQLException.class, () -> new BinaryFormat().decode(bytes, Object.class));
+    }
+
+    @Test
+    public void largePayloadsAreCompressed() throws SQLException {
+        BinaryFormat format = new BinaryFormat();
+        Inventory inventory = inventory(200);
+        byte[] compressed = format.encode(inventory, Inventory.class);
+        byte[] plain = format.setCompressionThreshold(Integer.MAX_VALUE).encode(inventory, Inventory.class);
+
+        assertTrue(compressed.length < plain.length);
+        assertInventory(inventory, (Inventory) format.decode(compressed, Inventory.class));
+        assertInventory(inventory, (Inventory) format.decode(plain, Inventory.class));
+        assertThrows(IllegalArgumentException.class, () -> format.setCompressionThreshold(-1));
+    }
+
+    @Test
+    public void legacyJsonValuesStillDecode() throws SQLException {
+        Inventory inventory = inventory(2);
+        String json = new JsonHelper().toEscapedString(JsonHelper.gson(), inventory);
+
+        assertInventory(inventory, (Inventory) new BinaryFormat().decode(json.getBytes(StandardCharsets.UTF_8), Inventory.class));
+    }
+
+    @Test
+    public void binaryColumnsRoundTripAndReadLegacyRows() {
+        SQL sql = new SQL(null, "jdbc:sqlite:file:binary" + System.nanoTime() + "?mode=memory&cache=shared");
+
+        try {
+            Inventory legacy = inventory(2), current = inventory(5);
+
+            sql.createTable(JsonBag.class).insert(new JsonBag(1, legacy));
+
+            SQLTable<BinaryBag> table = sql.createTable(BinaryBag.class);
+
+            table.insert(new BinaryBag(2, current));
+
+            assertInventory(legacy, table.getRow("id", 1L).inventory);
+            assertInventory(current, table.getRow("id", 2L).inventory);
+        } finally {
+            sql.close();
+        }
+    }
+
+    private static Inventory inventory(int size) {
+        Inventory inventory = new Inventory();
+
+        inventory.owner = "owner \"" + size + "\"";
+        for (int i = 0; i < size; i++)
+            inventory.items.add(new Item("item-" + i, i, i % 2 == 0 ? null : Collections.singletonMap("enchant", i)));
+
+        return inventory;
+    }
+
+    private static void assertInventory(Inventory expected, Inventory actual) {
+        assertNotNull(actual);
+        assertEquals(expected.owner, actual.owner);
+        assertEquals(expected.items.size(), actual.items.size());
+
+        for (int i = 0; i < expected.items.size(); i++) {
+            Item a = expected.items.get(i), b = actual.items.get(i);
+
+            assertEquals(a.name, b.name);
+            assertEquals(a.amount, b.amount);
+            assertEquals(a.meta, b.meta);
+        }
+    }
+
+    static class Inventory {
+        String owner;
+        List<Item> items = new ArrayList<>();
+    }
+
+    static class Item {
+        String name;
+        int amount;
+        Map<String, Integer> meta;
+
+        Item(String name, int amount, Map<String, Integer> meta) {
+            this.name = name;
+            this.amount = amount;
+            this.meta = meta;
+        }
+    }
+
+    @Table("bags")
+    static class JsonBag {
+        @Id
+        long id;
+        @Column
+        Inventory inventory;
+
+        JsonBag() {
+        }
+
+        JsonBag(long id, Inventory inventory) {
+            this.id = id;
+            this.inventory = inventory;
+        }
+    }
+
+    @Table("bags")
+    static class BinaryBag {
+        @Id
+        long id;
+        @Column(binary = true)
+        Inventory inventory;
+
+        BinaryBag() {
+        }
+
+        BinaryBag(long id, Inventory inventory) {
+            this.id = id;
+            this.inventory = inventory;
+        }
+    }
+}
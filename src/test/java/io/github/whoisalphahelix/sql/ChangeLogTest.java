@@ -0,0 +1,137 @@
+package io.github.whoisalphahelix.sql;
+
+import io.github.whoisalphahelix.sql.annotations.Column;
+import io.github.whoisalphahelix.sql.annotations.Id;
+import io.github.whoisalphahelix.sql.annotations.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+public class ChangeLogTest {
+
+    private File file;
+    private SQL writer, reader;
+    private SQLTable<Account> written, read;
+    private ChangeLog log;
+    private final List<String> changes = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void open() throws IOException {
+        file = File.createTempFile("changelog", ".db");
+        writer = new SQL(null, "jdbc:sqlite:" + file.getAbsolutePath());
+        reader = new SQL(null, "jdbc:sqlite:" + file.getAbsolutePath());
+
+        writer.changeLog(Duration.ofHours(1));
+        log = reader.changeLog(Duration.ofHours(1)).onChange((table, key) -> changes.add(table + ":" + key));
+
+        written = writer.createTable(Account.class);
+        read = reader.createTable(Account.class).cache(EntityCache.<Account>builder().maximumSize(100).build());
+    }
+
+    @After
+    public void close() {
+        writer.close();
+        reader.close();
+        file.delete();
+    }
+
+    @Test
+    public void remoteWritesInvalidateTheCache() {
+        written.insert(new Account(1, 10));
+        assertEquals(10, read.getRow("id", 1L).balance);
+
+        written.update("id", 1L, "balance", 20L);
+        assertEquals(10, read.getRow("id", 1L).balance);
+
+        assertEquals(2, log.poll());
+        assertEquals(20, read.getRow("id", 1L).balance);
+        assertTrue(changes.contains("accounts:1"));
+    }
+
+    @Test
+    public void ownWritesAreNotReapplied() {
+        read.insert(new Account(1, 10));
+        Account cached = read.getRow("id", 1L);
+
+        assertEquals(1, log.poll());
+        assertSame(cached, read.getRow("id", 1L));
+    }
+
+    @Test
+    public void pollGetsPastAGapFollowedByMoreThanOnePage() throws SQLException {
+        written.insert(new Account(1, 10));
+        log.poll();
+        assertEquals(10, read.getRow("id", 1L).balance);
+
+        long gap = log.getHighWaterMark() + 1;
+        int noise = 1500;
+
+        appendRaw(gap + 1, "noise", "0");
+        for (int i = 0; i < noise; i++)
+            appendRaw(null, "noise", String.valueOf(i));
+
+        assertEquals(noise + 1, log.poll());
+        assertEquals(gap + 1 + noise, log.getHighWaterMark());
+
+        written.update("id", 1L, "balance", 20L);
+        assertEquals(1, log.poll());
+        assertEquals(20, read.getRow("id", 1L).balance);
+
+        try (Connection con = writer.getDataSource().getConnection();
+             PreparedStatement prep = con.prepareStatement("UPDATE accounts SET balance = 30 WHERE id = 1")) {
+            prep.executeUpdate();
+        }
+        appendRaw(gap, "accounts", "1");
+
+        assertEquals(1, log.poll());
+        assertEquals(30, read.getRow("id", 1L).balance);
+        assertEquals(0, log.poll());
+    }
+
+    private void appendRaw(Long version, String table, String key) throws SQLException {
+        String name = writer.getDialect().quote(log.getTableName());
+
+        try (Connection con = writer.getDataSource().getConnection();
+             PreparedStatement prep = con.prepareStatement("INSERT INTO " + name
+                     + " (version,table_name,row_key,origin,created_at) VALUES (?,?,?,?,?)")) {
+            if (version == null)
+                prep.setNull(1, Types.BIGINT);
+            else
+                prep.setLong(1, version);
+
+            prep.setString(2, table);
+            prep.setString(3, key);
+            prep.setString(4, "other");
+            prep.setLong(5, System.currentTimeMillis());
+            prep.executeUpdate();
+        }
+    }
+
+    @Table("accounts")
+    static class Account {
+        @Id
+        long id;
+        @Column
+        long balance;
+
+        Account() {
+        }
+
+        Account(long id, long balance) {
+            this.id = id;
+            this.balance = balance;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package io.github.whoisalphahelix.sql;
+
+import io.github.whoisalphahelix.sql.annotations.Column;
+import io.github.whoisalphahelix.sql.annotations.Id;
+import io.github.whoisalphahelix.sql.annotations.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ChangeTrackerTest {
+
+    private SQL sql;
+    private SQLTable<Player> table;
+
+    @Before
+    public void open() {
+        sql = new SQL(null, "jdbc:sqlite:file:tracker" + System.nanoTime() + "?mode=memory&cache=shared");
+        table = sql.createTable(Player.class).trackChanges(100);
+        table.insert(new Player(1, "alpha", 10, Arrays.asList("a")));
+    }
+
+    @After
+    public void close() {
+        sql.close();
+    }
+
+    @Test
+    public void onlyChangedColumnsAreWritten() throws SQLException {
+        Player player = table.getRow("id", 1L);
+
+        raw("UPDATE players SET name = 'remote' WHERE id = 1");
+        player.score = 20;
+        table.save(player);
+
+        Player read = table.getRow("id", 1L);
+
+        assertEquals("remote", read.name);
+        assertEquals(20, read.score);
+    }
+
+    @Test
+    public void cleanEntitiesAreNotWritten() throws SQLException {
+        Player player = table.getRow("id", 1L);
+
+        player.score = 20;
+        table.save(player);
+
+        raw("UPDATE players SET score = 99 WHERE id = 1");
+        table.save(player);
+
+        assertEquals(99, table.getRow("id", 1L).score);
+    }
+
+    @Test
+    public void mutableColumnsAreAlwaysWritten() throws SQLException {
+        Player player = table.getRow("id", 1L);
+
+        raw("UPDATE players SET name = 'remote' WHERE id = 1");
+        player.tags.add("b");
+        table.save(player);
+
+        Player read = table.getRow("id", 1L);
+
+        assertEquals("remote", read.name);
+        assertEquals(Arrays.asList("a", "b"), read.tags);
+    }
+
+    @Test
+    public void untrackedEntitiesAreUpserted() throws SQLException {
+        raw("UPDATE players SET name = 'remote' WHERE id = 1");
+        table.save(new Player(1, "alpha", 30, Arrays.asList("a")));
+        table.save(new Player(2, "beta", 5, new ArrayList<>()));
+
+        assertEquals("alpha", table.getRow("id", 1L).name);
+        assertEquals(30, table.getRow("id", 1L).score);
+        assertEquals("beta", table.getRow("id", 2L).name);
+    }
+
+    @Test
+    public void deletedRowsFallBackToUpsert() throws SQLException {
+        Player player = table.getRow("id", 1L);
+
+        raw("DELETE FROM players WHERE id = 1");
+        player.score = 40;
+        table.save(player);
+
+        Player read = table.getRow("id", 1L);
+
+        assertNotNull(read);
+        assertEquals("alpha", read.name);
+        assertEquals(40, read.score);
+    }
+
+    private void raw(String query) throws SQLException {
+        try (Connection con = sql.getDataSource().getConnection();
+             PreparedStatement prep = con.prepareStatement(query)) {
+            prep.executeUpdate();
+        }
+    }
+
+    @Table("players")
+    static class Player {
+        @Id
+        long id;
+        @Column
+        String name;
+        @Column
+        long score;
+        @Column
+        List<String> tags;
+
+        Player() {
+        }
+
+        Player(long id, String name, long score, List<String> tags) {
+            this.id = id;
+            this.name = name;
+            this.score = score;
+            this.tags = new ArrayList<>(tags);
+        }
+    }
+}
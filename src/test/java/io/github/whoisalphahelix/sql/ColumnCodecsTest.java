@@ -0,0 +1,173 @@
+package io.github.whoisalphahelix.sql;
+
+import io.github.whoisalphahelix.sql.annotations.Column;
+import io.github.whoisalphahelix.sql.annotations.Id;
+import io.github.whoisalphahelix.sql.annotations.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class ColumnCodecsTest {
+
+    private SQL sql;
+
+    @Before
+    public void open() {
+        sql = new SQL(null, "jdbc:sqlite:file:codecs" + System.nanoTime() + "?mode=memory&cache=shared");
+    }
+
+    @After
+    public void close() {
+        sql.close();
+    }
+
+    @Test
+    public void nativeColumnsRoundTrip() {
+        SQLTable<Event> table = sql.createTable(Event.class);
+        Event event = new Event(UUID.randomUUID(), Kind.LOGIN, Instant.ofEpochSecond(1_600_000_000L, 123_456_789), 'x', 7L, 2.5, true, new byte[]{1, 2, 3});
+
+        table.insert(event);
+
+        Event read = table.getRow("id", event.id);
+
+        assertNotNull(read);
+        assertEquals(event.kind, read.kind);
+        assertEquals(event.at, read.at);
+        assertEquals(event.flag, read.flag);
+        assertEquals(event.count, read.count);
+        assertEquals(event.ratio, read.ratio, 0);
+        assertEquals(event.active, read.active);
+        assertArrayEquals(event.data, read.data);
+    }
+
+    @Test
+    public void instantKeepsNanosAndExtremeValues() {
+        SQLTable<Event> table = sql.createTable(Event.class);
+
+        for (Instant at : new Instant[]{Instant.MIN, Instant.MAX, Instant.EPOCH, Instant.ofEpochSecond(-1, 1)}) {
+            UUID id = UUID.randomUUID();
+
+            table.insert(new Event(id, Kind.LOGOUT, at, 'a', 0, 0, false, null));
+            assertEquals(at, table.getRow("id", id).at);
+        }
+    }
+
+    @Test
+    public void instantTextSortsChronologically() {
+        SQLTable<Event> table = sql.createTable(Event.class);
+        Instant early = Instant.ofEpochSecond(1_600_000_000L), late = early.plusNanos(500_000_000);
+
+        table.insert(new Event(UUID.randomUUID(), Kind.LOGIN, late, 'a', 0, 0, false, null));
+        table.insert(new Event(UUID.randomUUID(), Kind.LOGIN, early, 'a', 0, 0, false, null));
+
+        assertEquals(early, table.<Instant>min("at"));
+        assertEquals(late, table.<Instant>max("at"));
+    }
+
+    @Test
+    public void legacyJsonKeysAreMigratedAndMatchable() {
+        SQLTable<LegacyEvent> legacy = sql.createTable(LegacyEvent.class);
+        UUID id = UUID.randomUUID();
+        Instant at = Instant.ofEpochSecond(1_500_000_000L, 42);
+
+        legacy.insert(new LegacyEvent(id, Kind.LOGOUT, at));
+
+        SQLTable<Event> table = sql.createTable(Event.class);
+        Event read = table.getAll().get(0);
+
+        assertEquals(id, read.id);
+        assertEquals(Kind.LOGOUT, read.kind);
+        assertEquals(at, read.at);
+        assertNull(table.getRow("id", id));
+
+        assertEquals(3, table.migrateLegacyValues());
+        assertEquals(at, table.getRow("id", id).at);
+        assertTrue(table.contains("kind", Kind.LOGOUT));
+        assertEquals(0, table.migrateLegacyValues());
+
+        table.remove("id", id);
+        assertNull(table.getRow("id", id));
+    }
+
+    @Test
+    public void legacyInstantEnvelopeIsReadWithoutReflection() {
+        Instant at = Instant.ofEpochSecond(1_500_000_000L, 42);
+        String stored = "{\\\"body\\\":{\\\"seconds\\\":1500000000,\\\"nanos\\\":42},\\\"type\\\":\\\"java.time.Instant\\\"}";
+        JsonHelper helper = new JsonHelper();
+
+        assertEquals(stored, helper.toEscapedString(JsonHelper.gson(), at));
+        assertEquals(at, helper.fromJsonTree(JsonHelper.gson(), stored));
+    }
+
+    enum Kind {
+        LOGIN, LOGOUT
+    }
+
+    @Table("events")
+    static class Event {
+        @Id
+        UUID id;
+        @Column
+        Kind kind;
+        @Column
+        Instant at;
+        @Column
+        char flag;
+        @Column
+        long count;
+        @Column
+        double ratio;
+        @Column
+        boolean active;
+        @Column
+        byte[] data;
+
+        Event() {
+        }
+
+        Event(UUID id, Kind kind, Instant at, char flag, long count, double ratio, boolean active, byte[] data) {
+            this.id = id;
+            this.kind = kind;
+            this.at = at;
+            this.flag = flag;
+            this.count = count;
+            this.ratio = ratio;
+            this.active = active;
+            this.data = data;
+        }
+    }
+
+    @Table("events")
+    static class LegacyEvent {
+        @Column(type = "JSON")
+        UUID id;
+        @Column(type = "JSON")
+        Kind kind;
+        @Column(type = "JSON")
+        Instant at;
+        @Column
+        char flag = 'l';
+        @Column
+        long count;
+        @Column
+        double ratio;
+        @Column
+        boolean active;
+        @Column
+        byte[] data;
+
+        LegacyEvent() {
+        }
+
+        LegacyEvent(UUID id, Kind kind, Instant at) {
+            this.id = id;
+            this.kind = kind;
+            this.at = at;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package io.github.whoisalphahelix.sql;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DialectTest {
+
+    private static final String[] COLUMNS = {"id", "name", "order"};
+
+    @Test
+    public void dialectIsPickedFromTheUrl() {
+        assertSame(Dialects.SQLITE, Dialects.of("jdbc:sqlite::memory:"));
+        assertSame(Dialects.H2, Dialects.of("jdbc:h2:mem:test"));
+        assertSame(Dialects.MYSQL, Dialects.of("jdbc:mysql://localhost/db"));
+        assertSame(Dialects.MYSQL, Dialects.of("jdbc:mariadb://localhost/db"));
+        assertSame(Dialects.POSTGRESQL, Dialects.of("jdbc:postgresql://localhost/db"));
+        assertSame(Dialects.GENERIC, Dialects.of("jdbc:other:db"));
+        assertSame(Dialects.GENERIC, Dialects.of(null));
+    }
+
+    @Test
+    public void onlyReservedOrIrregularNamesAreQuoted() {
+        assertEquals("name", Dialects.SQLITE.quote("name"));
+        assertEquals("\"order\"", Dialects.SQLITE.quote("order"));
+        assertEquals("\"my col\"", Dialects.POSTGRESQL.quote("my col"));
+        assertEquals("`order`", Dialects.MYSQL.quote("order"));
+        assertEquals("`a``b`", Dialects.MYSQL.quote("a`b"));
+    }
+
+    @Test
+    public void sqliteAndPostgresUpsertWithOnConflict() {
+        String expected = "INSERT INTO people (id,name,\"order\") VALUES (?,?,?) ON CONFLICT (id) DO UPDATE SET "
+                + "name = excluded.name,\"order\" = excluded.\"order\"";
+
+        assertEquals(expected, Dialects.SQLITE.upsert("people", COLUMNS, "id"));
+        assertEquals(expected, Dialects.POSTGRESQL.upsert("people", COLUMNS, "id"));
+        assertEquals("INSERT INTO people (id,name,\"order\") VALUES (?,?,?) ON CONFLICT DO NOTHING",
+                Dialects.SQLITE.insertIgnore("people", COLUMNS, "id"));
+    }
+
+    @Test
+    public void upsertOfOnlyTheKeyIgnoresConflicts() {
+        assertEquals("INSERT INTO people (id) VALUES (?) ON CONFLICT DO NOTHING",
+                Dialects.SQLITE.upsert("people", new String[]{"id"}, "id"));
+        assertEquals("INSERT INTO people (id) VALUES (?) ON DUPLICATE KEY UPDATE id = id",
+                Dialects.MYSQL.upsert("people", new String[]{"id"}, "id"));
+    }
+
+    @Test
+    public void h2MergesByKeyAndHasNoInsertIgnore() {
+        assertEquals("MERGE INTO people (id,name,\"order\") KEY (id) VALUES (?,?,?)", Dialects.H2.upsert("people", COLUMNS, "id"));
+        assertNull(Dialects.H2.insertIgnore("people", COLUMNS, "id"));
+    }
+
+    @Test
+    public void mysqlUsesOnDuplicateKeyAndInsertIgnore() {
+        assertEquals("INSERT INTO people (id,name,`order`) VALUES (?,?,?) ON DUPLICATE KEY UPDATE "
+                + "name = VALUES(name),`order` = VALUES(`order`)", Dialects.MYSQL.upsert("people", COLUMNS, "id"));
+        assertEquals("INSERT IGNORE INTO people (id,name,`order`) VALUES (?,?,?)", Dialects.MYSQL.insertIgnore("people", COLUMNS, "id"));
+    }
+
+    @Test
+    public void createIndexHonoursIfNotExistsSupport() {
+        assertEquals("CREATE UNIQUE INDEX IF NOT EXISTS idx_name ON people (name)",
+                Dialects.SQLITE.createIndex("people", "idx_name", new String[]{"name"}, true));
+        assertEquals("CREATE INDEX idx_name ON people (name,`order`)",
+                Dialects.MYSQL.createIndex("people", "idx_name", new String[]{"name", "order"}, false));
+        assertFalse(Dialects.MYSQL.supportsCreateIndexIfNotExists());
+    }
+
+    @Test
+    public void columnTypesFollowTheDialect() {
+        assertEquals("BLOB", Dialects.SQLITE.columnType(byte[].class));
+        assertEquals("BYTEA", Dialects.POSTGRESQL.columnType(byte[].class));
+        assertEquals("LONGBLOB", Dialects.MYSQL.columnType(byte[].class));
+        assertEquals("CLOB", Dialects.H2.columnType(Object.class));
+        assertEquals("TEXT", Dialects.POSTGRESQL.columnType(Object.class));
+        assertEquals("LONGTEXT", Dialects.MYSQL.columnType(Object.class));
+        assertEquals("JSON", Dialects.GENERIC.columnType(Object.class));
+    }
+
+    @Test
+    public void pagingClausesUseParameters() {
+        assertEquals("SELECT * FROM people LIMIT ?", Dialects.SQLITE.limit("SELECT * FROM people"));
+        assertEquals("SELECT * FROM people LIMIT ? OFFSET ?", Dialects.POSTGRESQL.limitOffset("SELECT * FROM people"));
+    }
+}
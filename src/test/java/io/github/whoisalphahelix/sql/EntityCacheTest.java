@@ -0,0 +1,90 @@
+package io.github.whoisalphahelix.sql;
+
+import io.github.whoisalphahelix.sql.annotations.Column;
+import io.github.whoisalphahelix.sql.annotations.Id;
+import io.github.whoisalphahelix.sql.annotations.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class EntityCacheTest {
+
+    private SQL sql;
+    private EntityCache<Account> cache;
+    private SQLTable<Account> table;
+
+    @Before
+    public void open() {
+        sql = new SQL(null, "jdbc:sqlite:file:cache" + System.nanoTime() + "?mode=memory&cache=shared");
+        cache = EntityCache.<Account>builder().maximumSize(100).build();
+        table = sql.createTable(Account.class).cache(cache);
+    }
+
+    @After
+    public void close() {
+        sql.close();
+    }
+
+    @Test
+    public void committedReadsAreCached() {
+        table.insert(new Account(1, 10));
+
+        Account read = table.getRow("id", 1L);
+
+        assertSame(read, table.getRow("id", 1L));
+        assertSame(read, cache.get(1L));
+    }
+
+    @Test
+    public void uncommittedRowsAreNeverCached() {
+        table.insert(new Account(1, 10));
+        table.getRow("id", 1L);
+
+        sql.inTransaction(tx -> {
+            table.save(new Account(1, 20));
+            table.insert(new Account(2, 30));
+
+            assertEquals(20, table.getRow("id", 1L).balance);
+            assertEquals(30, table.getRows("id", Arrays.asList(1L, 2L)).get(2L).balance);
+            assertNull(cache.get(1L));
+            assertNull(cache.get(2L));
+
+            tx.setRollbackOnly();
+            return null;
+        });
+
+        assertNull(cache.get(2L));
+        assertEquals(10, table.getRow("id", 1L).balance);
+        assertNull(table.getRow("id", 2L));
+    }
+
+    @Test
+    public void committedWritesAreReadBack() {
+        table.insert(new Account(1, 10));
+        table.getRow("id", 1L);
+
+        sql.inTransaction(tx -> table.save(new Account(1, 20)));
+
+        assertEquals(20, table.getRow("id", 1L).balance);
+    }
+
+    @Table("accounts")
+    static class Account {
+        @Id
+        long id;
+        @Column
+        long balance;
+
+        Account() {
+        }
+
+        Account(long id, long balance) {
+            this.id = id;
+            this.balance = balance;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package io.github.whoisalphahelix.sql;
+
+import io.github.whoisalphahelix.sql.annotations.Column;
+import io.github.whoisalphahelix.sql.annotations.Id;
+import io.github.whoisalphahelix.sql.annotations.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class GetRowsTest {
+
+    private SQL sql;
+    private SQLTable<Account> accounts;
+
+    @Before
+    public void open() {
+        sql = SQL.builder()
+                .jdbcUrl("jdbc:sqlite:file:getrows" + System.nanoTime() + "?mode=memory&cache=shared")
+                .maximumPoolSize(4)
+                .connectionTimeout(Duration.ofSeconds(5))
+                .build();
+        accounts = sql.createTable(Account.class);
+
+        List<Account> rows = new ArrayList<>();
+
+        for (long id = 1; id <= 1500; id++)
+            rows.add(new Account(id, id * 10));
+
+        accounts.insertAll(rows);
+    }
+
+    @After
+    public void close() {
+        sql.close();
+    }
+
+    @Test
+    public void keysSpanningSeveralChunksAreAllFound() {
+        List<Long> keys = new ArrayList<>();
+
+        for (long id = 1; id <= 1300; id++)
+            keys.add(id);
+
+        Map<Long, Account> rows = accounts.getRows("id", keys);
+
+        assertEquals(1300, rows.size());
+        assertEquals(new ArrayList<>(keys), new ArrayList<>(rows.keySet()));
+
+        for (Map.Entry<Long, Account> entry : rows.entrySet())
+            assertEquals(entry.getKey() * 10, entry.getValue().balance);
+    }
+
+    @Test
+    public void paddedChunksDoNotAddRows() {
+        // 3 keys are padded to an IN list of 4 by repeating the last key
+        Map<Long, Account> rows = accounts.getRows("id", Arrays.asList(5L, 9L, 2000L));
+
+        assertEquals(Arrays.asList(5L, 9L), new ArrayList<>(rows.keySet()));
+    }
+
+    @Test
+    public void duplicateKeysAreLookedUpOnce() {
+        Map<Object, Account> rows = accounts.getRows("id", Arrays.asList(3L, 3, 7L, 3L, null));
+
+        assertEquals(Arrays.asList(3L, 7L), new ArrayList<>(rows.keySet()));
+        assertEquals(30, rows.get(3L).balance);
+    }
+
+    @Test
+    public void noKeysGiveAnEmptyMap() {
+        assertTrue(accounts.getRows("id", Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    public void lookupByANonKeyColumn() {
+        Map<Long, Account> rows = accounts.getRows("balance", Arrays.asList(10L, 20L, 15L));
+
+        assertEquals(2, rows.size());
+        assertEquals(2, rows.get(20L).id);
+    }
+
+    @Test
+    public void unknownColumnIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> accounts.getRows("missing", Collections.singletonList(1L)));
+    }
+
+    @Test
+    public void cachedRowsAreServedAndMissesAreLoaded() {
+        accounts.cache(EntityCache.<Account>builder().maximumSize(100).build());
+        accounts.getRow("id", 1L);
+
+        Map<Long, Account> rows = accounts.getRows("id", Arrays.asList(1L, 2L));
+
+        assertEquals(2, rows.size());
+        assertSame(rows.get(2L), accounts.getRows("id", Collections.singletonList(2L)).get(2L));
+    }
+
+    @Table("accounts")
+    static class Account {
+        @Id
+        long id;
+        @Column
+        long balance;
+
+        Account() {
+        }
+
+        Account(long id, long balance) {
+            this.id = id;
+            this.balance = balance;
+        }
+    }
+}
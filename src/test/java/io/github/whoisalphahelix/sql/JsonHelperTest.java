@@ -0,0 +1,105 @@
+package io.github.whoisalphahelix.sql;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class JsonHelperTest {
+
+    private static final JsonHelper HELPER = new JsonHelper();
+    private static final Gson GSON = JsonHelper.gson();
+    private static final String[] STRINGS = {
+            "plain", "with space", "quote\"inside", "back\\slash", "{brace", "trailing\\", "\"quoted\"",
+            "line\nbreak", "tab\there", "unicode \u00fc \u2713 \u2028", "html <a href='x'>&</a>", ""};
+
+    @Test
+    public void escapedOutputMatchesTreeEncoding() {
+        for (Object value : samples()) {
+            assertEquals(String.valueOf(value), treeEscapedString(value), HELPER.toEscapedString(GSON, value));
+            assertEquals(String.valueOf(value), treeString(value), HELPER.toJsonTreeString(GSON, value));
+        }
+    }
+
+    @Test
+    public void escapedOutputIsStable() {
+        assertEquals("quote\\\\\"inside", HELPER.toEscapedString(GSON, "quote\"inside"));
+        assertEquals("42", HELPER.toEscapedString(GSON, 42));
+        assertEquals("{\\\"body\\\":{\\\"name\\\":\\\"a b\\\",\\\"count\\\":3,\\\"tags\\\":[\\\"x\\\"]},"
+                        + "\\\"type\\\":\\\"io.github.whoisalphahelix.sql.JsonHelperTest$Item\\\"}",
+                HELPER.toEscapedString(GSON, new Item("a b", 3, Collections.singletonList("x"))));
+        assertNull(HELPER.toEscapedString(GSON, null));
+    }
+
+    @Test
+    public void storedValuesReadBack() {
+        for (String value : STRINGS)
+            assertEquals(value, HELPER.fromJsonTree(GSON, treeEscapedString(value)));
+
+        assertEquals(42, HELPER.fromJsonTree(GSON, treeEscapedString(42)));
+        assertEquals(-7, HELPER.fromJsonTree(GSON, treeEscapedString(-7L)));
+        assertEquals(12_345_678_901d, HELPER.fromJsonTree(GSON, treeEscapedString(12_345_678_901L)));
+        assertEquals(3.5, HELPER.fromJsonTree(GSON, treeEscapedString(3.5)));
+        assertEquals(true, HELPER.fromJsonTree(GSON, treeEscapedString(true)));
+
+        Item item = new Item("a \"b\" {c}", 3, Arrays.asList("x", "y\\z"));
+        Item read = (Item) HELPER.fromJsonTree(GSON, treeEscapedString(item));
+
+        assertEquals(item.name, read.name);
+        assertEquals(item.count, read.count);
+        assertEquals(item.tags, read.tags);
+        assertNull(read.note);
+    }
+
+    @Test
+    public void unknownTypeReadsAsNull() {
+        assertNull(HELPER.fromJsonTree(GSON, "{\\\"body\\\":{},\\\"type\\\":\\\"com.example.Missing\\\"}"));
+    }
+
+    private static List<Object> samples() {
+        List<Object> samples = new ArrayList<>(Arrays.asList(STRINGS));
+        Map<String, Object> map = new LinkedHashMap<>();
+
+        map.put("key \"q\"", Arrays.asList(1, 2.5, "three"));
+        map.put("nested", Collections.singletonMap("a", "b\\c"));
+
+        samples.addAll(Arrays.asList(42, -7L, 3.5, 1e-9, true, 'c', (byte) 1, (short) -2, 1.5f,
+                new Item("name", 1, Arrays.asList("a", "b")), new Item("q\"uote", -1, Collections.emptyList()),
+                Arrays.asList("x", 1, false), map));
+        return samples;
+    }
+
+    // The encoding JsonHelper used before it was moved onto the streaming writer.
+    private static String treeString(Object value) {
+        if (TypeHelper.isPrimitive(value.getClass()))
+            return GSON.toJsonTree(value.toString()).toString();
+
+        JsonObject head = new JsonObject();
+
+        head.add("body", GSON.toJsonTree(value));
+        head.addProperty("type", value.getClass().getName());
+        return "\"" + head + "\"";
+    }
+
+    private static String treeEscapedString(Object value) {
+        String str = treeString(value);
+
+        return str.substring(1, str.length() - 1).replace("\"", "\\\"");
+    }
+
+    static class Item {
+        String name;
+        int count;
+        List<String> tags;
+        String note;
+
+        Item(String name, int count, List<String> tags) {
+            this.name = name;
+            this.count = count;
+            this.tags = tags;
+        }
+    }
+}
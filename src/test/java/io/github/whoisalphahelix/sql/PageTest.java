@@ -0,0 +1,132 @@
+package io.github.whoisalphahelix.sql;
+
+import io.github.whoisalphahelix.sql.annotations.Column;
+import io.github.whoisalphahelix.sql.annotations.Id;
+import io.github.whoisalphahelix.sql.annotations.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PageTest {
+
+    private SQL sql;
+    private SQLTable<Account> accounts;
+
+    @Before
+    public void open() {
+        sql = new SQL(null, "jdbc:sqlite:file:page" + System.nanoTime() + "?mode=memory&cache=shared");
+        accounts = sql.createTable(Account.class);
+    }
+
+    @After
+    public void close() {
+        sql.close();
+    }
+
+    @Test
+    public void emptyTableGivesOneEmptyPage() {
+        Page<Account> page = accounts.page(null, 10);
+
+        assertTrue(page.isEmpty());
+        assertFalse(page.hasNext());
+        assertNull(page.getNextKey());
+    }
+
+    @Test
+    public void fullLastPageHasNoNext() {
+        insert(1, 4);
+
+        Page<Account> first = accounts.page(null, 2);
+
+        assertEquals(2, first.size());
+        assertTrue(first.hasNext());
+        assertEquals(2L, ((Number) first.getNextKey()).longValue());
+
+        Page<Account> second = accounts.page(first.getNextKey(), 2);
+
+        assertEquals(2, second.size());
+        assertFalse(second.hasNext());
+        assertEquals(4L, ((Number) second.getNextKey()).longValue());
+
+        Page<Account> after = accounts.page(second.getNextKey(), 2);
+
+        assertTrue(after.isEmpty());
+        assertEquals(second.getNextKey(), after.getNextKey());
+    }
+
+    @Test
+    public void walkingPagesVisitsEveryRowOnceInOrder() {
+        insert(1, 25);
+
+        List<Long> seen = new ArrayList<>();
+        Object key = null;
+        Page<Account> page;
+
+        do {
+            page = accounts.page(key, 7);
+            page.getItems().forEach(account -> seen.add(account.id));
+            key = page.getNextKey();
+        } while (page.hasNext());
+
+        assertEquals(25, seen.size());
+
+        for (int i = 0; i < seen.size(); i++)
+            assertEquals(i + 1, (long) seen.get(i));
+    }
+
+    @Test
+    public void afterKeyIsExclusiveAndNeedNotExist() {
+        accounts.insert(new Account(10, 0));
+        accounts.insert(new Account(20, 0));
+        accounts.insert(new Account(30, 0));
+
+        assertEquals(30, accounts.page(20L, 5).getItems().get(0).id);
+        assertEquals(20, accounts.page(15L, 5).getItems().get(0).id);
+        assertTrue(accounts.page(30L, 5).isEmpty());
+    }
+
+    @Test
+    public void pagingByAnotherColumn() {
+        accounts.insert(new Account(1, 300));
+        accounts.insert(new Account(2, 100));
+        accounts.insert(new Account(3, 200));
+
+        Page<Account> page = accounts.page("balance", 100L, 1);
+
+        assertEquals(3, page.getItems().get(0).id);
+        assertTrue(page.hasNext());
+        assertEquals(200L, ((Number) page.getNextKey()).longValue());
+    }
+
+    @Test
+    public void invalidArgumentsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> accounts.page(null, 0));
+        assertThrows(IllegalArgumentException.class, () -> accounts.page("missing", null, 5));
+    }
+
+    private void insert(long from, long to) {
+        for (long id = from; id <= to; id++)
+            accounts.insert(new Account(id, id * 10));
+    }
+
+    @Table("accounts")
+    static class Account {
+        @Id
+        long id;
+        @Column
+        long balance;
+
+        Account() {
+        }
+
+        Account(long id, long balance) {
+            this.id = id;
+            this.balance = balance;
+        }
+    }
+}
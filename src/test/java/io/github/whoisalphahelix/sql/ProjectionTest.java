@@ -0,0 +1,135 @@
+package io.github.whoisalphahelix.sql;
+
+import io.github.whoisalphahelix.sql.annotations.Column;
+import io.github.whoisalphahelix.sql.annotations.Id;
+import io.github.whoisalphahelix.sql.annotations.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ProjectionTest {
+
+    private SQL sql;
+    private SQLTable<Stat> stats;
+
+    @Before
+    public void open() {
+        sql = new SQL(null, "jdbc:sqlite:file:projection" + System.nanoTime() + "?mode=memory&cache=shared");
+        stats = sql.createTable(Stat.class);
+    }
+
+    @After
+    public void close() {
+        sql.close();
+    }
+
+    @Test
+    public void nullsAreMarkedAndReadAsNull() {
+        stats.insert(new Stat(1, 5, 7, 10L, 0.5, "a"));
+        stats.insert(new Stat(2, 6, null, null, null, null));
+
+        Projection projection = stats.project("id", "bonus", "total", "ratio", "label");
+
+        assertEquals(2, projection.getRowCount());
+        assertFalse(projection.isNull("bonus", 0));
+        assertTrue(projection.isNull("bonus", 1));
+        assertTrue(projection.isNull("total", 1));
+        assertTrue(projection.isNull("ratio", 1));
+        assertTrue(projection.isNull("label", 1));
+        assertNull(projection.get("bonus", 1));
+        assertNull(projection.get("label", 1));
+        assertEquals(Arrays.asList(7, null), projection.getValues("bonus"));
+        assertArrayEquals(new int[]{7, 0}, projection.getInts("bonus"));
+    }
+
+    @Test
+    public void integerColumnsWiden() {
+        stats.insert(new Stat(1, 5, 7, 10L, 0.5, "a"));
+        stats.insert(new Stat(2, 6, 8, 20L, 1.5, "b"));
+
+        Projection projection = stats.project("score", "total");
+
+        assertEquals(int.class, projection.getColumnType("score"));
+        assertEquals(long.class, projection.getColumnType("total"));
+        assertArrayEquals(new long[]{5, 6}, projection.getLongs("score"));
+        assertArrayEquals(new int[]{10, 20}, projection.getInts("total"));
+        assertArrayEquals(new double[]{5, 6}, projection.getDoubles("score"), 0);
+        assertArrayEquals(new double[]{10, 20}, projection.getDoubles("total"), 0);
+    }
+
+    @Test
+    public void narrowingAnOverflowingLongFails() {
+        stats.insert(new Stat(1, 5, 7, Long.MAX_VALUE, 0.5, "a"));
+
+        assertThrows(ArithmeticException.class, () -> stats.project("total").getInts("total"));
+    }
+
+    @Test
+    public void nonNumericColumnsAreRejected() {
+        stats.insert(new Stat(1, 5, 7, 10L, 0.5, "a"));
+
+        Projection projection = stats.project("label");
+
+        assertThrows(IllegalArgumentException.class, () -> projection.getLongs("label"));
+        assertThrows(IllegalArgumentException.class, () -> projection.getDoubles("label"));
+        assertThrows(IllegalArgumentException.class, () -> projection.getInts("score"));
+    }
+
+    @Test
+    public void returnedArraysAreCopies() {
+        stats.insert(new Stat(1, 5, 7, 10L, 0.5, "a"));
+
+        Projection projection = stats.project("score", "total", "ratio");
+
+        projection.getInts("score")[0] = 99;
+        projection.getLongs("total")[0] = 99;
+        projection.getDoubles("ratio")[0] = 99;
+
+        assertEquals(5, projection.getInts("score")[0]);
+        assertEquals(10, projection.getLongs("total")[0]);
+        assertEquals(0.5, projection.getDoubles("ratio")[0], 0);
+    }
+
+    @Test
+    public void emptyTableGivesEmptyColumns() {
+        Projection projection = stats.project("score", "label");
+        List<String> labels = projection.getValues("label");
+
+        assertTrue(projection.isEmpty());
+        assertEquals(0, projection.getInts("score").length);
+        assertTrue(labels.isEmpty());
+    }
+
+    @Table("stats")
+    public static class Stat {
+        @Id
+        long id;
+        @Column
+        int score;
+        @Column
+        Integer bonus;
+        @Column
+        Long total;
+        @Column
+        Double ratio;
+        @Column(type = "VARCHAR(255)")
+        String label;
+
+        public Stat() {
+        }
+
+        Stat(long id, int score, Integer bonus, Long total, Double ratio, String label) {
+            this.id = id;
+            this.score = score;
+            this.bonus = bonus;
+            this.total = total;
+            this.ratio = ratio;
+            this.label = label;
+        }
+    }
+}
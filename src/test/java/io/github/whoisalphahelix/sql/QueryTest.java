@@ -0,0 +1,116 @@
+package io.github.whoisalphahelix.sql;
+
+import io.github.whoisalphahelix.sql.annotations.Column;
+import io.github.whoisalphahelix.sql.annotations.Id;
+import io.github.whoisalphahelix.sql.annotations.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class QueryTest {
+
+    private SQL sql;
+    private SQLTable<Account> accounts;
+
+    @Before
+    public void open() {
+        sql = new SQL(null, "jdbc:sqlite:file:query" + System.nanoTime() + "?mode=memory&cache=shared");
+        accounts = sql.createTable(Account.class);
+
+        accounts.insert(new Account(1, 100, "ann"));
+        accounts.insert(new Account(2, 200, "bob"));
+        accounts.insert(new Account(3, 300, "carl"));
+        accounts.insert(new Account(4, 400, null));
+    }
+
+    @After
+    public void close() {
+        sql.close();
+    }
+
+    @Test
+    public void unknownColumnsAreRejectedEverywhere() {
+        assertThrows(IllegalArgumentException.class, () -> accounts.query().where("missing", 1L).list());
+        assertThrows(IllegalArgumentException.class, () -> accounts.where(Condition.gt("balance", 1L).or(Condition.isNull("missing"))).list());
+        assertThrows(IllegalArgumentException.class, () -> accounts.query().where(Condition.not(Condition.in("missing", 1L))).count());
+        assertThrows(IllegalArgumentException.class, () -> accounts.query().orderBy("missing").list());
+        assertThrows(IllegalArgumentException.class, () -> accounts.query().project("id", "missing"));
+        assertThrows(IllegalArgumentException.class, () -> accounts.query().min("missing"));
+        assertThrows(IllegalArgumentException.class, () -> accounts.query().where("missing", 1L).exists());
+    }
+
+    @Test
+    public void invalidArgumentsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> accounts.query().limit(-1));
+        assertThrows(IllegalArgumentException.class, () -> accounts.query().offset(-1));
+        assertThrows(IllegalArgumentException.class, () -> Condition.gt("balance", null));
+        assertThrows(IllegalArgumentException.class, () -> Condition.between("balance", 1L, null));
+    }
+
+    @Test
+    public void conditionsFilterOnTheServer() {
+        assertEquals(Arrays.asList(2L, 3L), ids(accounts.where(Condition.between("balance", 150L, 350L)).orderBy("id").list()));
+        assertEquals(Arrays.asList(1L, 4L), ids(accounts.where(Condition.eq("balance", 100L).or(Condition.isNull("name"))).orderBy("id").list()));
+        assertEquals(Arrays.asList(1L, 3L), ids(accounts.where(Condition.in("id", 1L, 3L, 9L)).orderBy("id").list()));
+        assertEquals(Collections.singletonList(3L), ids(accounts.where(Condition.like("name", "c%")).list()));
+        assertEquals(Collections.singletonList(4L), ids(accounts.query().where("name", null).list()));
+        assertTrue(accounts.where(Condition.in("id", Collections.emptyList())).list().isEmpty());
+        assertEquals(3, accounts.where(Condition.not(Condition.eq("id", 2L))).count());
+    }
+
+    @Test
+    public void orderingLimitAndOffset() {
+        assertEquals(Arrays.asList(4L, 3L), ids(accounts.query().orderByDescending("balance").limit(2).list()));
+        assertEquals(Arrays.asList(2L, 3L), ids(accounts.query().orderBy("id").offset(1).limit(2).list()));
+        assertEquals(Arrays.asList(3L, 4L), ids(accounts.query().orderBy("id").offset(2).list()));
+        assertEquals(4L, accounts.query().orderByDescending("id").first().orElseThrow(AssertionError::new).id);
+        assertFalse(accounts.query().where("id", 9L).first().isPresent());
+    }
+
+    @Test
+    public void projectionAndValuesFollowTheQuery() {
+        Projection projection = accounts.query().where(Condition.ge("balance", 300L)).orderBy("id").project("id", "name");
+
+        assertEquals(2, projection.getRowCount());
+        assertArrayEquals(new long[]{3, 4}, projection.getLongs("id"));
+        assertEquals(Arrays.asList("carl", null), accounts.query().where(Condition.ge("balance", 300L)).orderBy("id").values("name"));
+    }
+
+    @Test
+    public void reusedShapesBindTheirOwnValues() {
+        assertEquals(Collections.singletonList(1L), ids(accounts.query().where("id", 1L).list()));
+        assertEquals(Collections.singletonList(2L), ids(accounts.query().where("id", 2L).list()));
+        assertEquals(3, accounts.where(Condition.in("id", 1L, 2L, 3L)).count());
+        assertEquals(2, accounts.where(Condition.in("id", 1L, 2L, 2L)).count());
+    }
+
+    private static List<Long> ids(List<Account> accounts) {
+        return accounts.stream().map(account -> account.id).collect(Collectors.toList());
+    }
+
+    @Table("accounts")
+    static class Account {
+        @Id
+        long id;
+        @Column
+        long balance;
+        @Column(type = "VARCHAR(255)")
+        String name;
+
+        Account() {
+        }
+
+        Account(long id, long balance, String name) {
+            this.id = id;
+            this.balance = balance;
+            this.name = name;
+        }
+    }
+}
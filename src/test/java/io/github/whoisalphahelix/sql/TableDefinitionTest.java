@@ -0,0 +1,167 @@
+package io.github.whoisalphahelix.sql;
+
+import io.github.whoisalphahelix.sql.annotations.Column;
+import io.github.whoisalphahelix.sql.annotations.Id;
+import io.github.whoisalphahelix.sql.annotations.Index;
+import io.github.whoisalphahelix.sql.annotations.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class TableDefinitionTest {
+
+    private SQL sql;
+
+    @Before
+    public void open() {
+        sql = new SQL(null, "jdbc:sqlite:file:definition" + System.nanoTime() + "?mode=memory&cache=shared");
+    }
+
+    @After
+    public void close() {
+        sql.close();
+    }
+
+    @Test
+    public void compositeIdBecomesATablePrimaryKey() throws SQLException {
+        SQLTable<Membership> memberships = sql.createTable(Membership.class);
+
+        assertNull(memberships.getPrimaryKey());
+        assertEquals(Arrays.asList("user", "team"), sql.getTableMetadata(Membership.class).getPrimaryKeyColumns());
+        assertTrue(schema("table", "memberships").replace("\"", "").contains("PRIMARY KEY (user,team)"));
+
+        memberships.insert(new Membership(1, 1, "owner"));
+        memberships.insert(new Membership(1, 2, "member"));
+        memberships.insert(new Membership(1, 1, "member"));
+
+        assertEquals(2, memberships.count());
+        assertEquals("owner", memberships.getRow(new String[]{"user", "team"}, 1L, 1L).role);
+    }
+
+    @Test
+    public void keyOperationsNeedASingleColumnKey() {
+        SQLTable<Membership> memberships = sql.createTable(Membership.class);
+
+        assertThrows(IllegalStateException.class, () -> memberships.save(new Membership(1, 1, "owner")));
+        assertThrows(IllegalStateException.class, () -> memberships.page(null, 10));
+    }
+
+    @Test
+    public void singleIdBecomesAColumnPrimaryKey() throws SQLException {
+        SQLTable<Member> members = sql.createTable(Member.class);
+
+        assertNotNull(members.getPrimaryKey());
+        assertEquals("id", members.getPrimaryKey().getName());
+        assertTrue(schema("table", "members").contains("PRIMARY KEY"));
+    }
+
+    @Test
+    public void indexAnnotationsCreateIndexes() throws SQLException {
+        SQLTable<Member> members = sql.createTable(Member.class);
+
+        assertEquals("CREATE UNIQUE INDEX ux_members_email ON members (email)", schema("index", "ux_members_email"));
+        assertEquals("CREATE INDEX ix_members_team_role ON members (team,role)", schema("index", "ix_members_team_role"));
+        assertEquals("CREATE INDEX by_name ON members (name)", schema("index", "by_name"));
+        assertTrue(members.isIndexed("id"));
+        assertTrue(members.isIndexed("email"));
+        assertTrue(members.isIndexed("team"));
+        assertFalse(members.isIndexed("role"));
+    }
+
+    @Test
+    public void uniqueIndexIsEnforced() {
+        SQLTable<Member> members = sql.createTable(Member.class);
+
+        members.insert(new Member(1, "a@example.com", 1, "owner", "Ann"));
+        members.insert(new Member(2, "a@example.com", 1, "member", "Bob"));
+
+        assertEquals(1, members.count());
+    }
+
+    @Test
+    public void creatingATableTwiceKeepsItsIndexes() throws SQLException {
+        sql.createTable(Member.class);
+        sql.createTable(Member.class);
+
+        assertNotNull(schema("index", "ux_members_email"));
+    }
+
+    @Test
+    public void classIndexWithoutColumnsIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> sql.createTable(Broken.class));
+    }
+
+    private String schema(String type, String name) throws SQLException {
+        try (Connection con = sql.getDataSource().getConnection();
+             PreparedStatement prep = con.prepareStatement("SELECT sql FROM sqlite_master WHERE type = ? AND name = ?")) {
+            prep.setString(1, type);
+            prep.setString(2, name);
+
+            try (ResultSet rs = prep.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    @Table("memberships")
+    static class Membership {
+        @Id
+        long user;
+        @Id
+        long team;
+        @Column(type = "VARCHAR(255)")
+        String role;
+
+        Membership() {
+        }
+
+        Membership(long user, long team, String role) {
+            this.user = user;
+            this.team = team;
+            this.role = role;
+        }
+    }
+
+    @Table("members")
+    @Index(columns = {"team", "role"})
+    static class Member {
+        @Id
+        long id;
+        @Column(type = "VARCHAR(255)")
+        @Index(unique = true)
+        String email;
+        @Column
+        long team;
+        @Column(type = "VARCHAR(255)")
+        String role;
+        @Column(type = "VARCHAR(255)")
+        @Index(name = "by_name")
+        String name;
+
+        Member() {
+        }
+
+        Member(long id, String email, long team, String role, String name) {
+            this.id = id;
+            this.email = email;
+            this.team = team;
+            this.role = role;
+            this.name = name;
+        }
+    }
+
+    @Table("broken")
+    @Index
+    static class Broken {
+        @Id
+        long id;
+    }
+}
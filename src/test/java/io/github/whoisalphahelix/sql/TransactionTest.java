@@ -0,0 +1,179 @@
+package io.github.whoisalphahelix.sql;
+
+import io.github.whoisalphahelix.sql.annotations.Column;
+import io.github.whoisalphahelix.sql.annotations.Id;
+import io.github.whoisalphahelix.sql.annotations.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.Assert.*;
+
+public class TransactionTest {
+
+    private SQL sql;
+    private SQLTable<Account> table;
+
+    @Before
+    public void open() {
+        sql = new SQL(null, "jdbc:sqlite:file:tx" + System.nanoTime() + "?mode=memory&cache=shared");
+        table = sql.createTable(Account.class);
+    }
+
+    @After
+    public void close() {
+        sql.close();
+    }
+
+    @Test
+    public void commitKeepsWrites() {
+        assertEquals("done", sql.inTransaction(tx -> {
+            table.insert(new Account(1, 10));
+            return "done";
+        }));
+
+        assertNull(sql.getTransaction());
+        assertEquals(10, table.getRow("id", 1L).balance);
+    }
+
+    @Test
+    public void rollbackOnlyDiscardsWrites() {
+        assertNull(sql.inTransaction(tx -> {
+            table.insert(new Account(1, 10));
+            tx.setRollbackOnly();
+            return "done";
+        }));
+
+        assertNull(table.getRow("id", 1L));
+    }
+
+    @Test
+    public void runtimeExceptionRollsBackAndPropagates() {
+        IllegalStateException thrown = new IllegalStateException();
+
+        assertSame(thrown, assertThrows(IllegalStateException.class, () -> sql.inTransaction(tx -> {
+            table.insert(new Account(1, 10));
+            throw thrown;
+        })));
+
+        assertNull(sql.getTransaction());
+        assertNull(table.getRow("id", 1L));
+    }
+
+    @Test
+    public void errorRollsBackAndPropagates() {
+        assertThrows(AssertionError.class, () -> sql.inTransaction(tx -> {
+            table.insert(new Account(1, 10));
+            throw new AssertionError();
+        }));
+
+        assertNull(table.getRow("id", 1L));
+        assertNotNull(sql.inTransaction(tx -> table.insert(new Account(2, 20))));
+        assertEquals(20, table.getRow("id", 2L).balance);
+    }
+
+    @Test
+    public void checkedExceptionIsWrapped() {
+        SQLException cause = new SQLException("boom");
+        TransactionException thrown = assertThrows(TransactionException.class, () -> sql.inTransaction(tx -> {
+            table.insert(new Account(1, 10));
+            throw cause;
+        }));
+
+        assertSame(cause, thrown.getCause());
+        assertNull(table.getRow("id", 1L));
+    }
+
+    @Test
+    public void failedStatementRollsBackAndThrows() {
+        TransactionException thrown = assertThrows(TransactionException.class, () -> sql.inTransaction(tx -> {
+            table.insert(new Account(1, 10));
+            table.update("id", 1L, "missing", 5L);
+            return null;
+        }));
+
+        assertNotNull(thrown.getCause());
+        assertNull(table.getRow("id", 1L));
+    }
+
+    @Test
+    public void failedStatementInSavepointThrowsAndKeepsTheOuterWork() {
+        sql.inTransaction(tx -> {
+            table.insert(new Account(1, 10));
+
+            assertThrows(TransactionException.class, () -> sql.inTransaction(nested -> {
+                table.insert(new Account(2, 20));
+                table.update("id", 2L, "missing", 5L);
+                return null;
+            }));
+
+            assertFalse(tx.isRollbackOnly());
+            assertNull(tx.getFailure());
+            return null;
+        });
+
+        assertNotNull(table.getRow("id", 1L));
+        assertNull(table.getRow("id", 2L));
+    }
+
+    @Test
+    public void savepointRollsBackOnlyTheNestedWork() {
+        sql.inTransaction(tx -> {
+            table.insert(new Account(1, 10));
+
+            assertThrows(TransactionException.class, () -> sql.inTransaction(nested -> {
+                table.insert(new Account(2, 20));
+                throw new SQLException("nested");
+            }));
+
+            assertNull(sql.inTransaction(nested -> {
+                table.insert(new Account(3, 30));
+                nested.setRollbackOnly();
+                return "ignored";
+            }));
+
+            assertFalse(tx.isRollbackOnly());
+            return sql.inTransaction(nested -> table.insert(new Account(4, 40)));
+        });
+
+        assertNotNull(table.getRow("id", 1L));
+        assertNull(table.getRow("id", 2L));
+        assertNull(table.getRow("id", 3L));
+        assertNotNull(table.getRow("id", 4L));
+    }
+
+    @Test
+    public void errorInSavepointRollsBackTheNestedWork() {
+        sql.inTransaction(tx -> {
+            table.insert(new Account(1, 10));
+
+            assertThrows(StackOverflowError.class, () -> sql.inTransaction(nested -> {
+                table.insert(new Account(2, 20));
+                throw new StackOverflowError();
+            }));
+
+            return null;
+        });
+
+        assertNotNull(table.getRow("id", 1L));
+        assertNull(table.getRow("id", 2L));
+    }
+
+    @Table("accounts")
+    static class Account {
+        @Id
+        long id;
+        @Column
+        long balance;
+
+        Account() {
+        }
+
+        Account(long id, long balance) {
+            this.id = id;
+            this.balance = balance;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.whoisalphahelix.sql;
+
+import io.github.whoisalphahelix.sql.annotations.Column;
+import io.github.whoisalphahelix.sql.annotations.Id;
+import io.github.whoisalphahelix.sql.annotations.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class UpsertTest {
+
+    private SQL sql;
+    private SQLTable<Account> accounts;
+
+    @Before
+    public void open() {
+        sql = new SQL(null, "jdbc:sqlite:file:upsert" + System.nanoTime() + "?mode=memory&cache=shared");
+        accounts = sql.createTable(Account.class);
+    }
+
+    @After
+    public void close() {
+        sql.close();
+    }
+
+    @Test
+    public void saveInsertsThenUpdates() {
+        accounts.save(new Account(1, 10));
+        assertEquals(10, accounts.getRow("id", 1L).balance);
+
+        accounts.save(new Account(1, 20));
+        assertEquals(20, accounts.getRow("id", 1L).balance);
+        assertEquals(1, accounts.count());
+    }
+
+    @Test
+    public void upsertByColumnsInsertsThenUpdates() {
+        String[] columns = {"id", "balance"};
+
+        accounts.upsert(columns, 1L, 10L);
+        accounts.upsert(columns, 1L, 30L);
+        accounts.upsert(columns, 2L, 5L);
+
+        assertEquals(30, accounts.getRow("id", 1L).balance);
+        assertEquals(5, accounts.getRow("id", 2L).balance);
+        assertEquals(2, accounts.count());
+    }
+
+    @Test
+    public void upsertWithoutThePrimaryKeyIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> accounts.upsert(new String[]{"balance"}, 10L));
+    }
+
+    @Test
+    public void insertIfAbsentKeepsTheExistingRow() {
+        accounts.insertIfAbsent(new Account(1, 10));
+        accounts.insertIfAbsent(new Account(1, 20));
+
+        assertEquals(10, accounts.getRow("id", 1L).balance);
+        assertEquals(1, accounts.count());
+    }
+
+    @Test
+    public void insertIfAbsentFallbackInsertsOnlyAbsentRows() {
+        SQLTable<Account> plain = sql.createTable("plain", row -> new Account(((Number) row.get(0)).longValue(), ((Number) row.get(1)).longValue()),
+                new SQLColumn("id", "BIGINT", "PRIMARY KEY"), new SQLColumn("balance", "BIGINT"));
+
+        plain.insertIfAbsent(new Account(1, 10));
+        plain.insertIfAbsent(new Account(1, 10));
+        plain.insertIfAbsent(new Account(2, 5));
+
+        assertEquals(2, plain.count());
+        assertEquals(10, plain.getRow("id", 1L).balance);
+        assertEquals(5, plain.getRow("id", 2L).balance);
+    }
+
+    @Table("accounts")
+    static class Account {
+        @Id
+        long id;
+        @Column
+        long balance;
+
+        Account() {
+        }
+
+        Account(long id, long balance) {
+            this.id = id;
+            this.balance = balance;
+        }
+    }
+}
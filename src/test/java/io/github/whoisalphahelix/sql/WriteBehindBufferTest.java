@@ -0,0 +1,299 @@
+package io.github.whoisalphahelix.sql;
+
+import io.github.whoisalphahelix.sql.annotations.Column;
+import io.github.whoisalphahelix.sql.annotations.Id;
+import io.github.whoisalphahelix.sql.annotations.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class WriteBehindBufferTest {
+
+    private SQL sql;
+    private SQLTable<Account> table;
+
+    @Before
+    public void open() {
+        sql = new SQL(null, "jdbc:sqlite:file:writebehind" + System.nanoTime() + "?mode=memory&cache=shared");
+        table = sql.createTable(Account.class);
+    }
+
+    @After
+    public void close() {
+        table.close();
+        sql.close();
+    }
+
+    @Test
+    public void updatesToTheSameKeyCoalesce() {
+        table.insert(new Account(1, 0));
+        table.writeBehind(100, Duration.ofHours(1));
+
+        for (int i = 1; i <= 5; i++)
+            table.update("id", 1L, "balance", (long) i);
+
+        assertEquals(1, table.getWriteBehind().getPendingCount());
+        assertEquals(1, table.flush());
+        assertTrue(table.getWriteBehind().isEmpty());
+        assertEquals(5, table.getRow("id", 1L).balance);
+    }
+
+    @Test
+    public void readsSeePendingWrites() {
+        table.insert(new Account(1, 0));
+        table.insert(new Account(2, 0));
+        table.cache(EntityCache.<Account>builder().maximumSize(10).build());
+        table.writeBehind(100, Duration.ofHours(1));
+
+        table.update("id", 1L, "balance", 10L);
+        assertEquals(10, table.getRow("id", 1L).balance);
+
+        table.update("id", 2L, "balance", 20L);
+        assertEquals(20, table.getRows("id", Collections.singletonList(2L)).get(2L).balance);
+
+        table.update("id", 2L, "balance", 30L);
+        assertTrue(table.contains("balance", 30L));
+        assertTrue(table.getWriteBehind().isEmpty());
+    }
+
+    @Test
+    public void fullBufferFlushesInTheBackground() throws InterruptedException {
+        for (long id = 1; id <= 3; id++)
+            table.insert(new Account(id, 0));
+
+        table.writeBehind(3, Duration.ofHours(1));
+
+        for (long id = 1; id <= 3; id++)
+            table.update("id", id, "balance", id * 10);
+
+        WriteBehindBuffer buffer = table.getWriteBehind();
+
+        for (int i = 0; i < 100 && !buffer.isEmpty(); i++)
+            Thread.sleep(20);
+
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void rollbackKeepsOtherPendingWritesAndDropsItsOwn() {
+        table.insert(new Account(1, 0));
+        table.insert(new Account(2, 0));
+        table.writeBehind(100, Duration.ofHours(1));
+        table.update("id", 1L, "balance", 10L);
+
+        sql.inTransaction(tx -> {
+            table.update("id", 2L, "balance", 99L);
+
+            assertEquals(99, table.getRow("id", 2L).balance);
+
+            tx.setRollbackOnly();
+            return null;
+        });
+
+        assertEquals(10, table.getRow("id", 1L).balance);
+        assertEquals(0, table.getRow("id", 2L).balance);
+        assertTrue(table.getWriteBehind().isEmpty());
+    }
+
+    @Test
+    public void supersededPendingWriteSurvivesRollback() {
+        table.insert(new Account(1, 0));
+        table.writeBehind(100, Duration.ofHours(1));
+        table.update("id", 1L, "balance", 10L);
+
+        sql.inTransaction(tx -> {
+            table.update("id", 1L, "balance", 99L);
+            tx.setRollbackOnly();
+            return null;
+        });
+
+        assertEquals(10, table.getRow("id", 1L).balance);
+    }
+
+    @Test
+    public void committedWriteIsNotOverwrittenBySupersededPendingWrite() {
+        table.insert(new Account(1, 0));
+        table.writeBehind(100, Duration.ofHours(1));
+        table.update("id", 1L, "balance", 10L);
+
+        sql.inTransaction(tx -> table.update("id", 1L, "balance", 99L));
+
+        assertEquals(99, table.getRow("id", 1L).balance);
+        assertTrue(table.getWriteBehind().isEmpty());
+    }
+
+    @Test
+    public void readsInsideATransactionDoNotWaitForTheFlush() {
+        SQL single = SQL.builder().jdbcUrl("jdbc:sqlite:file:writebehind-single" + System.nanoTime() + "?mode=memory&cache=shared")
+                .maximumPoolSize(1).connectionTimeout(Duration.ofSeconds(5)).build();
+
+        try {
+            SQLTable<Account> accounts = single.createTable(Account.class);
+
+            accounts.insert(new Account(1, 0));
+            accounts.insert(new Account(2, 0));
+            accounts.writeBehind(100, Duration.ofHours(1));
+            accounts.update("id", 1L, "balance", 10L);
+
+            long start = System.nanoTime();
+
+            single.inTransaction(tx -> {
+                accounts.update("id", 2L, "balance", 20L);
+                return accounts.getRow("id", 2L);
+            });
+
+            assertTrue(System.nanoTime() - start < 2_000_000_000L);
+            assertEquals(10, accounts.getRow("id", 1L).balance);
+            assertEquals(20, accounts.getRow("id", 2L).balance);
+            accounts.close();
+        } finally {
+            single.close();
+        }
+    }
+
+    @Test
+    public void dependentUpdatesAreWrittenInOrder() {
+        for (long id = 1; id <= 50; id++)
+            table.insert(new Account(id, 0));
+
+        table.writeBehind(1000, Duration.ofHours(1));
+
+        for (long id = 1; id <= 50; id++) {
+            table.update("id", id, "id", id + 1000);
+            table.update("id", id + 1000, "balance", id);
+        }
+
+        assertEquals(100, table.flush());
+
+        for (long id = 1; id <= 50; id++)
+            assertEquals(id, table.getRow("id", id + 1000).balance);
+    }
+
+    @Test
+    public void failedFlushRequeuesAndKeepsTheSchedule() throws InterruptedException, SQLException {
+        sql.getCodecs().register(Label.class, ColumnCodec.of(Label.class, (rs, index) -> new Label(rs.getString(index)),
+                (prep, index, value) -> {
+                    if (Label.failing)
+                        throw new IllegalStateException("codec failure");
+
+                    prep.setString(index, value.text);
+                }));
+
+        SQLTable<Tag> tags = sql.createTable(Tag.class);
+
+        tags.insert(new Tag(1, 0, new Label("old")));
+        tags.writeBehind(100, Duration.ofMillis(10));
+
+        try {
+            Label.failing = true;
+            tags.update("id", 1L, "label", new Label("new"));
+            tags.update("id", 1L, "count", 5L);
+
+            Thread.sleep(100);
+            assertEquals(0, storedCount());
+
+            Label.failing = false;
+
+            for (int i = 0; i < 100 && !tags.getWriteBehind().isEmpty(); i++)
+                Thread.sleep(20);
+
+            Tag read = tags.getRow("id", 1L);
+
+            assertEquals("new", read.label.text);
+            assertEquals(5, read.count);
+
+            tags.writeBehind(100, Duration.ofHours(1));
+            Label.failing = true;
+            tags.update("id", 1L, "label", new Label("newer"));
+
+            assertThrows(IllegalStateException.class, tags::flush);
+            assertEquals(1, tags.getWriteBehind().getPendingCount());
+
+            Label.failing = false;
+            assertEquals(1, tags.flush());
+            assertEquals("newer", tags.getRow("id", 1L).label.text);
+        } finally {
+            Label.failing = false;
+            tags.close();
+        }
+    }
+
+    @Test
+    public void invalidSettingsAreRejectedWithoutStartingAThread() {
+        int threads = writeBehindThreads();
+
+        assertThrows(IllegalArgumentException.class, () -> table.writeBehind(0, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> table.writeBehind(10, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> table.writeBehind(10, Duration.ofNanos(500)));
+        assertThrows(IllegalArgumentException.class, () -> table.writeBehind(10, Duration.ofSeconds(-1)));
+        assertNull(table.getWriteBehind());
+        assertEquals(threads, writeBehindThreads());
+    }
+
+    private long storedCount() throws SQLException {
+        try (Connection con = sql.getDataSource().getConnection();
+             PreparedStatement prep = con.prepareStatement("SELECT count FROM tags WHERE id = 1");
+             ResultSet rs = prep.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : -1;
+        }
+    }
+
+    private static int writeBehindThreads() {
+        return (int) Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("sql-write-behind-")).count();
+    }
+
+    static class Label {
+        static volatile boolean failing;
+
+        final String text;
+
+        Label(String text) {
+            this.text = text;
+        }
+    }
+
+    @Table("tags")
+    static class Tag {
+        @Id
+        long id;
+        @Column
+        long count;
+        @Column(type = "VARCHAR(255)")
+        Label label;
+
+        Tag() {
+        }
+
+        Tag(long id, long count, Label label) {
+            this.id = id;
+            this.count = count;
+            this.label = label;
+        }
+    }
+
+    @Table("accounts")
+    static class Account {
+        @Id
+        long id;
+        @Column
+        long balance;
+
+        Account() {
+        }
+
+        Account(long id, long balance) {
+            this.id = id;
+            this.balance = balance;
+        }
+    }
+}